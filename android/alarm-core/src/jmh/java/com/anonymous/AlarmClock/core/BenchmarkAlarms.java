@@ -0,0 +1,64 @@
+package com.anonymous.AlarmClock.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic alarm sets and a no-op host shared by the benchmarks
+ */
+final class BenchmarkAlarms {
+    // Fixed "now" so every run computes the same schedule: 2024-03-04T06:30:00Z, a Monday
+    static final long NOW = 1_709_533_800_000L;
+
+    private BenchmarkAlarms() {
+    }
+
+    /**
+     * count alarms spread over the week; every third one repeats on a weekday mask
+     */
+    static List<ScheduledAlarm> create(int count, long shift) {
+        List<ScheduledAlarm> alarms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int hour = i % 24;
+            int minute = (i * 7) % 60;
+            boolean repeating = i % 3 == 0;
+            int days = repeating ? 1 + i % AlarmRecurrence.ALL_DAYS : 0;
+            long triggerTime = NOW + 60_000L * (1 + i % 10_080) + shift;
+            alarms.add(new ScheduledAlarm("alarm-" + i, "Alarm " + i, triggerTime, repeating, hour, minute, days));
+        }
+        return alarms;
+    }
+
+    static File tempStore() throws IOException {
+        File file = File.createTempFile("alarms", ".store");
+        if (!file.delete()) {
+            throw new IOException("Could not reset " + file);
+        }
+        return file;
+    }
+
+    static final class NullHost implements AlarmEngine.Host {
+        @Override
+        public void armWakeup(String alarmId, long triggerTime) {
+        }
+
+        @Override
+        public void disarmWakeup() {
+        }
+
+        @Override
+        public void onUnknownAlarm(String alarmId) {
+        }
+
+        @Override
+        public void onRequestCodeReleased(int requestCode) {
+        }
+
+        @Override
+        public void onStoreError(String alarmId, IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.anonymous.AlarmClock.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk reconcile against a store already holding the set: the no-op case
+ * (nothing changed) and the worst case (every trigger moved)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReconcileBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int alarms;
+
+    private File file;
+    private AlarmEngine engine;
+    private List<ScheduledAlarm> current;
+    private List<ScheduledAlarm> shifted;
+    private boolean flip;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkAlarms.tempStore();
+        engine = new AlarmEngine(AlarmStore.open(file), new BenchmarkAlarms.NullHost(), null, AlarmEngine.NOT_ARMED);
+        current = BenchmarkAlarms.create(alarms, 0);
+        shifted = BenchmarkAlarms.create(alarms, 60_000L);
+        engine.scheduleAll(current);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public AlarmEngine.Reconciliation unchanged() throws IOException {
+        // Leaves the store as it was, so flip stays valid for allChanged
+        return engine.reconcile(flip ? shifted : current);
+    }
+
+    @Benchmark
+    public AlarmEngine.Reconciliation allChanged() throws IOException {
+        flip = !flip;
+        return engine.reconcile(flip ? shifted : current);
+    }
+}
@@ -0,0 +1,57 @@
+package com.anonymous.AlarmClock.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-occurrence computation for every alarm in a set, as after a zone change
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RecurrenceBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int alarms;
+
+    @Param({"Europe/Berlin", "America/New_York"})
+    public String zoneId;
+
+    private int[] hours;
+    private int[] minutes;
+    private int[] masks;
+    private ZoneOffsets zone;
+
+    @Setup
+    public void setUp() {
+        List<ScheduledAlarm> set = BenchmarkAlarms.create(alarms, 0);
+        hours = new int[alarms];
+        minutes = new int[alarms];
+        masks = new int[alarms];
+        for (int i = 0; i < alarms; i++) {
+            ScheduledAlarm alarm = set.get(i);
+            hours[i] = alarm.hour;
+            minutes[i] = alarm.minute;
+            masks[i] = alarm.repeatDays;
+        }
+        zone = ZoneOffsets.forZone(TimeZone.getTimeZone(zoneId), BenchmarkAlarms.NOW);
+    }
+
+    @Benchmark
+    public long nextTrigger() {
+        long sum = 0;
+        for (int i = 0; i < alarms; i++) {
+            sum += AlarmRecurrence.nextTrigger(BenchmarkAlarms.NOW, zone, hours[i], minutes[i], masks[i]);
+        }
+        return sum;
+    }
+}
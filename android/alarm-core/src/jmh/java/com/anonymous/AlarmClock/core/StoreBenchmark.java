@@ -0,0 +1,69 @@
+package com.anonymous.AlarmClock.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlarmStore record encode (put, replacing the stored copy) and decode
+ * (readAll and one lookup by id) on a mapped file
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int alarms;
+
+    private File file;
+    private AlarmStore store;
+    private List<ScheduledAlarm> set;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = BenchmarkAlarms.tempStore();
+        store = AlarmStore.open(file);
+        set = BenchmarkAlarms.create(alarms, 0);
+        for (ScheduledAlarm alarm : set) {
+            store.put(alarm);
+        }
+        store.flush();
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public void encodeAll() throws IOException {
+        for (ScheduledAlarm alarm : set) {
+            store.put(alarm);
+        }
+    }
+
+    @Benchmark
+    public List<ScheduledAlarm> decodeAll() {
+        return store.readAll();
+    }
+
+    @Benchmark
+    public ScheduledAlarm decodeOne() {
+        next = next + 1 == alarms ? 0 : next + 1;
+        return store.get(set.get(next).id);
+    }
+}
@@ -0,0 +1,468 @@
+package com.anonymous.AlarmClock.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Framework-free alarm scheduling core
+ * Keeps pending alarms in a min-heap mirrored to an AlarmStore, assigns
+ * request codes and computes repeats, and tells its Host when the single
+ * system wakeup has to move. Everything platform-specific - AlarmManager,
+ * PendingIntents, logging - lives behind Host, so the engine runs on a plain
+ * JVM. Not thread-safe; callers serialize access
+ */
+public final class AlarmEngine {
+    public static final long NOT_ARMED = -1L;
+
+    // Transient alarms the app does not track; reconcile() leaves them alone
+    public static final String SNOOZE_PREFIX = "snooze-";
+
+    // One-time alarms missed by less than this while the device was off still ring
+    private static final long MISSED_GRACE_MS = 10 * 60 * 1000;
+
+    /**
+     * Platform side of the engine; called synchronously from engine methods
+     */
+    public interface Host {
+        /**
+         * Register the single system wakeup at triggerTime, replacing any previous one
+         */
+        void armWakeup(String alarmId, long triggerTime);
+
+        /**
+         * Remove the system wakeup
+         */
+        void disarmWakeup();
+
+        /**
+         * An id is scheduled for the first time or cancelled without being
+         * scheduled; a chance to clean up registrations made outside the engine
+         */
+        void onUnknownAlarm(String alarmId);
+
+        /**
+         * A request code went back to the allocator
+         */
+        void onRequestCodeReleased(int requestCode);
+
+        /**
+         * A store write on a path that must not fail did; the heap stays
+         * authoritative for this process
+         */
+        void onStoreError(String alarmId, IOException e);
+    }
+
+    /**
+     * Outcome of reconcile(), in alarms
+     */
+    public static final class Reconciliation {
+        public int added;
+        public int updated;
+        public int removed;
+        public int unchanged;
+    }
+
+    private final AlarmStore store;
+    private final Host host;
+    private final AlarmHeap heap = new AlarmHeap();
+    private final RequestCodeAllocator requestCodes = new RequestCodeAllocator();
+    private String armedId;
+    private long armedTime;
+    // Schedule requests that matched the stored alarm and were not applied,
+    // over this engine's lifetime; hosts that rebuild the engine carry it over
+    private long skippedCalls;
+
+    /**
+     * Load every stored alarm; armedId/armedTime describe the wakeup the host
+     * last registered, so an unchanged head is not registered again
+     */
+    public AlarmEngine(AlarmStore store, Host host, String armedId, long armedTime) {
+        this.store = store;
+        this.host = host;
+        this.armedId = armedId;
+        this.armedTime = armedTime;
+        load();
+    }
+
+    /**
+     * Add or replace an alarm and move the wakeup if the head changed
+     */
+    public void schedule(ScheduledAlarm alarm) throws IOException {
+        if (add(alarm)) {
+            store.flush();
+            armNext();
+        }
+    }
+
+    /**
+     * Add or replace many alarms with a single store flush and at most one
+     * wakeup registration
+     */
+    public void scheduleAll(List<ScheduledAlarm> alarms) throws IOException {
+        try {
+            for (ScheduledAlarm alarm : alarms) {
+                add(alarm);
+            }
+        } finally {
+            store.flush();
+            armNext();
+        }
+    }
+
+    /**
+     * Apply a coalesced batch with one store flush and at most one wakeup
+     * registration: cancels first, then adds. failures[i] receives the error
+     * for schedules.get(i) - an IOException if its store write failed, an
+     * IllegalArgumentException if the store can not hold it - and the rest of
+     * the batch still applies
+     */
+    public void apply(List<String> cancels, List<ScheduledAlarm> schedules, Exception[] failures) {
+        for (String alarmId : cancels) {
+            if (!drop(alarmId)) {
+                host.onUnknownAlarm(alarmId);
+            }
+        }
+        for (int i = 0; i < schedules.size(); i++) {
+            try {
+                add(schedules.get(i));
+            } catch (IOException | IllegalArgumentException e) {
+                failures[i] = e;
+            }
+        }
+        store.flush();
+        armNext();
+    }
+
+    /**
+     * Make the pending alarms match a desired set with the minimal diff: new ids
+     * are added, changed ones updated, unchanged ones skipped and alarms missing
+     * from the set removed. Snoozes are kept since the app does not track them
+     */
+    public Reconciliation reconcile(List<ScheduledAlarm> desired) throws IOException {
+        Reconciliation result = new Reconciliation();
+        HashSet<String> wanted = new HashSet<>(desired.size() * 2);
+        try {
+            for (ScheduledAlarm alarm : desired) {
+                wanted.add(alarm.id);
+                boolean isNew = heap.get(alarm.id) == null;
+                if (!add(alarm)) {
+                    result.unchanged++;
+                } else if (isNew) {
+                    result.added++;
+                } else {
+                    result.updated++;
+                }
+            }
+
+            List<String> stale = new ArrayList<>();
+            for (int i = 0; i < heap.size(); i++) {
+                String alarmId = heap.at(i).id;
+                if (!wanted.contains(alarmId) && !alarmId.startsWith(SNOOZE_PREFIX)) {
+                    stale.add(alarmId);
+                }
+            }
+            for (String alarmId : stale) {
+                drop(alarmId);
+                result.removed++;
+            }
+        } finally {
+            store.flush();
+            armNext();
+        }
+        return result;
+    }
+
+    /**
+     * Move a scheduled alarm to a new trigger time, keeping its label, schedule
+     * and request code; returns false when it was not scheduled
+     */
+    public boolean reschedule(String alarmId, long triggerTime) throws IOException {
+        ScheduledAlarm existing = heap.get(alarmId);
+        if (existing == null) {
+            return false;
+        }
+        ScheduledAlarm moved = existing.withTriggerTime(triggerTime);
+        store.put(moved);
+        heap.upsert(moved);
+        store.flush();
+        armNext();
+        return true;
+    }
+
+    /**
+     * Remove an alarm; returns false when it was not scheduled
+     */
+    public boolean cancel(String alarmId) {
+        if (!drop(alarmId)) {
+            host.onUnknownAlarm(alarmId);
+            return false;
+        }
+        store.flush();
+        armNext();
+        return true;
+    }
+
+    /**
+     * Remove many alarms in one pass; the result holds, per id, whether it was scheduled
+     */
+    public boolean[] cancelAll(List<String> alarmIds) {
+        boolean[] removed = new boolean[alarmIds.size()];
+        for (int i = 0; i < removed.length; i++) {
+            String alarmId = alarmIds.get(i);
+            if (drop(alarmId)) {
+                removed[i] = true;
+            } else {
+                host.onUnknownAlarm(alarmId);
+            }
+        }
+        store.flush();
+        armNext();
+        return removed;
+    }
+
+    /**
+     * Drop every alarm and the wakeup; returns how many were removed
+     * The wakeup is disarmed unconditionally in case the armed state is stale
+     */
+    public int clear() throws IOException {
+        int count = heap.size();
+        heap.clear();
+        store.clear();
+        requestCodes.clear();
+        host.disarmWakeup();
+        armedId = null;
+        armedTime = NOT_ARMED;
+        return count;
+    }
+
+    /**
+     * Pop every alarm due at or before the given time and arm the next one
+     * Repeating alarms with a known schedule are put back at their next
+     * occurrence before arming, so they repeat even if JS never runs
+     */
+    public List<ScheduledAlarm> pollDue(long now) {
+        List<ScheduledAlarm> due = new ArrayList<>();
+        ScheduledAlarm head = heap.peek();
+        while (head != null && head.triggerTime <= now) {
+            heap.poll();
+            store.remove(head.id);
+            if (!head.canRepeatNatively()) {
+                // Released codes go to the back of the free list, so the one
+                // used by the ringing screen is not handed out again soon
+                releaseCode(head.id);
+            }
+            due.add(head);
+            head = heap.peek();
+        }
+
+        ZoneOffsets zone = ZoneOffsets.forZone(TimeZone.getDefault(), now);
+        for (int i = 0; i < due.size(); i++) {
+            ScheduledAlarm fired = due.get(i);
+            if (!fired.canRepeatNatively()) {
+                continue;
+            }
+            // Never compute from before the fired trigger or it would be picked again
+            long from = Math.max(now, fired.triggerTime);
+            ScheduledAlarm next = fired.withTriggerTime(
+                AlarmRecurrence.nextTrigger(from, zone, fired.hour, fired.minute, fired.repeatDays));
+            heap.upsert(next);
+            persist(next);
+        }
+        store.flush();
+
+        // The registration that just fired is gone from the system
+        armedId = null;
+        armedTime = NOT_ARMED;
+        armNext();
+        return due;
+    }
+
+    /**
+     * Re-arm everything after a reboot, when the system has forgotten all
+     * registrations. Repeating alarms that passed while the device was off move
+     * to their next occurrence; stale one-time alarms are dropped.
+     * Returns the number of alarms left pending
+     */
+    public int restore(long now) {
+        List<ScheduledAlarm> kept = new ArrayList<>();
+        ZoneOffsets zone = ZoneOffsets.forZone(TimeZone.getDefault(), now);
+
+        ScheduledAlarm head = heap.peek();
+        while (head != null && head.triggerTime < now) {
+            heap.poll();
+            if (head.canRepeatNatively()) {
+                kept.add(head.withTriggerTime(
+                    AlarmRecurrence.nextTrigger(now, zone, head.hour, head.minute, head.repeatDays)));
+            } else if (now - head.triggerTime <= MISSED_GRACE_MS) {
+                kept.add(head);
+            } else {
+                store.remove(head.id);
+                releaseCode(head.id);
+            }
+            head = heap.peek();
+        }
+        for (ScheduledAlarm alarm : kept) {
+            heap.upsert(alarm);
+            persist(alarm);
+        }
+        store.flush();
+
+        armedId = null;
+        armedTime = NOT_ARMED;
+        armNext();
+        return heap.size();
+    }
+
+    /**
+     * Move wall-clock alarms to the instant their hour:minute now falls on,
+     * after the time zone or system clock changed. Alarms already due are left
+     * for the next pollDue; the rest are recomputed in one pass over the heap
+     * with one store flush and at most one wakeup registration.
+     * Returns the number of alarms moved
+     */
+    public int recomputeWallClock(long now) {
+        ZoneOffsets zone = ZoneOffsets.forZone(TimeZone.getDefault(), now);
+        List<ScheduledAlarm> moved = new ArrayList<>();
+        for (int i = 0; i < heap.size(); i++) {
+            ScheduledAlarm alarm = heap.at(i);
+            if (!alarm.hasWallClockTime() || alarm.triggerTime <= now) {
+                continue;
+            }
+            // One-time alarms were armed for the next hour:minute, on any day
+            int mask = alarm.isRepeating ? alarm.repeatDays : 0;
+            long triggerTime = AlarmRecurrence.nextTrigger(now, zone, alarm.hour, alarm.minute, mask);
+            if (triggerTime != alarm.triggerTime) {
+                moved.add(alarm.withTriggerTime(triggerTime));
+            }
+        }
+        // Not updated while iterating; upsert reorders the heap
+        for (ScheduledAlarm alarm : moved) {
+            heap.upsert(alarm);
+            persist(alarm);
+        }
+        store.flush();
+        armNext();
+        return moved.size();
+    }
+
+    public int size() {
+        return heap.size();
+    }
+
+    /**
+     * Earliest pending alarm, or null
+     */
+    public ScheduledAlarm peek() {
+        return heap.peek();
+    }
+
+    /**
+     * Read one alarm straight from the store
+     */
+    public ScheduledAlarm get(String alarmId) {
+        return store.get(alarmId);
+    }
+
+    /**
+     * Read every stored alarm
+     */
+    public List<ScheduledAlarm> getAll() {
+        return store.readAll();
+    }
+
+    public long getSkippedCalls() {
+        return skippedCalls;
+    }
+
+    /**
+     * Insert or replace an alarm in the store and heap, assigning its request code
+     * Returns false without touching the store when the alarm is already
+     * scheduled with the same trigger and payload
+     */
+    private boolean add(ScheduledAlarm alarm) throws IOException {
+        ScheduledAlarm existing = heap.get(alarm.id);
+        if (existing != null && existing.sameSchedule(alarm)) {
+            skippedCalls++;
+            return false;
+        }
+        boolean isNew = existing == null;
+        if (isNew) {
+            host.onUnknownAlarm(alarm.id);
+        }
+        ScheduledAlarm coded = alarm.withRequestCode(requestCodes.acquire(alarm.id));
+        try {
+            store.put(coded);
+        } catch (IOException | IllegalArgumentException e) {
+            if (isNew) {
+                requestCodes.release(alarm.id);
+            }
+            throw e;
+        }
+        heap.upsert(coded);
+        return true;
+    }
+
+    /**
+     * Remove an alarm from the heap and store and free its request code
+     */
+    private boolean drop(String alarmId) {
+        if (heap.remove(alarmId) == null) {
+            return false;
+        }
+        store.remove(alarmId);
+        releaseCode(alarmId);
+        return true;
+    }
+
+    private void releaseCode(String alarmId) {
+        int code = requestCodes.release(alarmId);
+        if (code != RequestCodeAllocator.NONE) {
+            host.onRequestCodeReleased(code);
+        }
+    }
+
+    /**
+     * Store write from a path that must not fail (firing, boot restore)
+     */
+    private void persist(ScheduledAlarm alarm) {
+        try {
+            store.put(alarm);
+        } catch (IOException e) {
+            host.onStoreError(alarm.id, e);
+        }
+    }
+
+    private void armNext() {
+        ScheduledAlarm next = heap.peek();
+
+        if (next == null) {
+            if (armedTime != NOT_ARMED) {
+                host.disarmWakeup();
+                armedId = null;
+                armedTime = NOT_ARMED;
+            }
+            return;
+        }
+
+        if (next.triggerTime == armedTime && next.id.equals(armedId)) {
+            // Head unchanged - nothing to tell the system
+            return;
+        }
+
+        host.armWakeup(next.id, next.triggerTime);
+        armedId = next.id;
+        armedTime = next.triggerTime;
+    }
+
+    private void load() {
+        // Every stored record was given its request code when it was added
+        for (ScheduledAlarm alarm : store.readAll()) {
+            requestCodes.restore(alarm.id, alarm.requestCode);
+            heap.upsert(alarm);
+        }
+        requestCodes.finishRestore();
+    }
+}
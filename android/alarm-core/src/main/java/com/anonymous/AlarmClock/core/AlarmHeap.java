@@ -0,0 +1,137 @@
+package com.anonymous.AlarmClock.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Indexed binary min-heap of pending alarms ordered by trigger time
+ * Keeps an id -> slot index so updates and removals by id are O(log n)
+ */
+public final class AlarmHeap {
+    private ScheduledAlarm[] heap = new ScheduledAlarm[16];
+    private final Map<String, Integer> slots = new HashMap<>();
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public ScheduledAlarm peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    public ScheduledAlarm get(String id) {
+        Integer slot = slots.get(id);
+        return slot == null ? null : heap[slot];
+    }
+
+    /**
+     * Alarm at a heap slot, 0 <= slot < size(); for iterating in no particular order
+     */
+    public ScheduledAlarm at(int slot) {
+        return heap[slot];
+    }
+
+    /**
+     * Insert a new alarm or replace the existing entry with the same id
+     */
+    public void upsert(ScheduledAlarm alarm) {
+        Integer slot = slots.get(alarm.id);
+        if (slot != null) {
+            long previous = heap[slot].triggerTime;
+            heap[slot] = alarm;
+            if (alarm.triggerTime < previous) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+            return;
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        heap[size] = alarm;
+        slots.put(alarm.id, size);
+        siftUp(size++);
+    }
+
+    public ScheduledAlarm remove(String id) {
+        Integer slot = slots.get(id);
+        if (slot == null) {
+            return null;
+        }
+        return removeAt(slot);
+    }
+
+    public ScheduledAlarm poll() {
+        return size == 0 ? null : removeAt(0);
+    }
+
+    public void clear() {
+        Arrays.fill(heap, 0, size, null);
+        slots.clear();
+        size = 0;
+    }
+
+    private ScheduledAlarm removeAt(int slot) {
+        ScheduledAlarm removed = heap[slot];
+        slots.remove(removed.id);
+
+        int last = --size;
+        if (slot != last) {
+            ScheduledAlarm moved = heap[last];
+            heap[slot] = moved;
+            slots.put(moved.id, slot);
+            heap[last] = null;
+            // The moved entry may belong above or below its new slot
+            siftDown(slot);
+            siftUp(slot);
+        } else {
+            heap[last] = null;
+        }
+        return removed;
+    }
+
+    private void siftUp(int slot) {
+        ScheduledAlarm alarm = heap[slot];
+        while (slot > 0) {
+            int parent = (slot - 1) >>> 1;
+            ScheduledAlarm above = heap[parent];
+            if (above.triggerTime <= alarm.triggerTime) {
+                break;
+            }
+            heap[slot] = above;
+            slots.put(above.id, slot);
+            slot = parent;
+        }
+        heap[slot] = alarm;
+        slots.put(alarm.id, slot);
+    }
+
+    private void siftDown(int slot) {
+        ScheduledAlarm alarm = heap[slot];
+        int half = size >>> 1;
+        while (slot < half) {
+            int child = 2 * slot + 1;
+            int right = child + 1;
+            if (right < size && heap[right].triggerTime < heap[child].triggerTime) {
+                child = right;
+            }
+            ScheduledAlarm below = heap[child];
+            if (alarm.triggerTime <= below.triggerTime) {
+                break;
+            }
+            heap[slot] = below;
+            slots.put(below.id, slot);
+            slot = child;
+        }
+        heap[slot] = alarm;
+        slots.put(alarm.id, slot);
+    }
+}
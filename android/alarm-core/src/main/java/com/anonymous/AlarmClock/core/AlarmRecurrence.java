@@ -0,0 +1,110 @@
+package com.anonymous.AlarmClock.core;
+
+/**
+ * Native next-occurrence engine for repeating alarms
+ * Repeat days are a 7-bit mask with bit 0 = Monday ... bit 6 = Sunday, matching
+ * the RepeatDay order used in JS. Mirrors notificationService.getNextOccurrence
+ * without allocating: offsets come from a per-zone ZoneOffsets table and the
+ * next matching weekday is found with a mask rotation and a trailing-zero count.
+ */
+public final class AlarmRecurrence {
+    public static final int MON = 1;
+    public static final int TUE = 1 << 1;
+    public static final int WED = 1 << 2;
+    public static final int THU = 1 << 3;
+    public static final int FRI = 1 << 4;
+    public static final int SAT = 1 << 5;
+    public static final int SUN = 1 << 6;
+    public static final int ALL_DAYS = 0x7F;
+
+    // JS RepeatDay names indexed by bit position
+    public static final String[] DAY_NAMES = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    private AlarmRecurrence() {
+    }
+
+    /**
+     * Bit for a JS RepeatDay name, or 0 if it is not one
+     */
+    public static int dayBit(String day) {
+        if (day == null) {
+            return 0;
+        }
+        switch (day) {
+            case "Mon": return MON;
+            case "Tue": return TUE;
+            case "Wed": return WED;
+            case "Thu": return THU;
+            case "Fri": return FRI;
+            case "Sat": return SAT;
+            case "Sun": return SUN;
+            default: return 0;
+        }
+    }
+
+    /**
+     * Weekday index of an epoch day, 0 = Monday ... 6 = Sunday
+     */
+    public static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(epochDay + 3, 7L);
+    }
+
+    /**
+     * Next instant strictly after now at hour:minute local time on a day in mask
+     * An empty mask means any day, i.e. the next time the wall clock reads hour:minute.
+     * Unlike the JS version, a time skipped by DST today does not carry its shifted
+     * wall clock into the following days
+     */
+    public static long nextTrigger(long now, ZoneOffsets zone, int hour, int minute, int mask) {
+        mask &= ALL_DAYS;
+        if (mask == 0) {
+            mask = ALL_DAYS;
+        }
+
+        long localNow = now + zone.getOffset(now);
+        long today = Math.floorDiv(localNow, DAY_MS);
+        long timeOfDay = (hour * 60L + minute) * MINUTE_MS;
+
+        // Start today unless today's occurrence is not after now
+        long startDay = today;
+        if (toUtc(today * DAY_MS + timeOfDay, zone) <= now) {
+            startDay++;
+        }
+
+        long day = startDay + daysUntil(dayOfWeek(startDay), mask);
+        return toUtc(day * DAY_MS + timeOfDay, zone);
+    }
+
+    /**
+     * Days from weekday index dow (0 = Monday) to the first day set in mask, 0..6
+     */
+    public static int daysUntil(int dow, int mask) {
+        // Rotate the mask right by dow so bit 0 is the start day
+        int rotated = ((mask >>> dow) | (mask << (7 - dow))) & ALL_DAYS;
+        return Integer.numberOfTrailingZeros(rotated);
+    }
+
+    /**
+     * Convert local wall-clock millis to an instant
+     * Ambiguous times (DST fall-back) resolve to the earlier instant and times in a
+     * DST gap shift forward by the gap, the same as JS Date.setHours
+     */
+    public static long toUtc(long local, ZoneOffsets zone) {
+        int before = zone.getOffset(local - DAY_MS);
+        int after = zone.getOffset(local + DAY_MS);
+        long early = local - before;
+        if (before == after || zone.getOffset(early) == before) {
+            return early;
+        }
+        long late = local - after;
+        if (zone.getOffset(late) == after) {
+            return late;
+        }
+        // Wall time skipped by a forward transition
+        return early;
+    }
+}
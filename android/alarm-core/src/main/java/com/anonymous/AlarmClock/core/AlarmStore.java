@@ -0,0 +1,564 @@
+package com.anonymous.AlarmClock.core;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Memory-mapped alarm store made of fixed-width binary records
+ *
+ * File layout: two 64-byte header slots, an open-addressing table of 64-byte
+ * records keyed by id hash, then a string heap holding ids and labels.
+ * Records are read straight from the mapping by offset, so lookups are O(1)
+ * and loading involves no text parsing.
+ *
+ * Crash safety: header updates go to the inactive slot and win by generation
+ * (double buffering). A record becomes visible only when its flags word is
+ * written, after its body and checksum. Updates write a new record before
+ * tombstoning the old one, and duplicates left by a crash are resolved by
+ * sequence number on open. Not thread-safe; AlarmScheduler serializes access.
+ */
+public final class AlarmStore {
+    private static final int MAGIC = 0x414C5354;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADERS_SIZE = HEADER_SIZE * 2;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_GENERATION = 8;
+    private static final int H_CAPACITY = 16;
+    private static final int H_HEAP_SIZE = 20;
+    private static final int H_HEAP_USED = 24;
+    private static final int H_CHECKSUM = 60;
+
+    public static final int RECORD_SIZE = 64;
+    private static final int R_ID_HASH = 0;
+    private static final int R_FLAGS = 4;
+    private static final int R_TRIGGER_TIME = 8;
+    private static final int R_SEQ = 16;
+    private static final int R_SCHEDULE = 24;
+    private static final int R_ID_OFFSET = 28;
+    private static final int R_LABEL_OFFSET = 32;
+    private static final int R_ID_LENGTH = 36;
+    private static final int R_LABEL_LENGTH = 38;
+    private static final int R_REQUEST_CODE = 40;
+    // VibrationPattern index
+    private static final int R_VIBRATION = 44;
+    // Snooze minutes << 16 | max snoozes << 8 | snooze count
+    private static final int R_SNOOZE = 48;
+    private static final int R_CHECKSUM = 60;
+
+    private static final int FLAG_USED = 1;
+    private static final int FLAG_TOMBSTONE = 1 << 1;
+    private static final int FLAG_REPEATING = 1 << 2;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MIN_HEAP_SIZE = 16 * 1024;
+
+    private final File file;
+    private MappedByteBuffer buffer;
+    private int activeHeader;
+    private long generation;
+    private int capacity;
+    private int heapSize;
+    private int heapUsed;
+    private int count;
+    private int tombstones;
+    private long nextSeq = 1;
+
+    private AlarmStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Open the store at the given path, creating it if needed
+     */
+    public static AlarmStore open(File file) throws IOException {
+        AlarmStore store = new AlarmStore(file);
+        if (!file.exists() || !store.mapExisting()) {
+            store.create(MIN_CAPACITY, MIN_HEAP_SIZE);
+        }
+        return store;
+    }
+
+    /**
+     * Pick up changes another process made since this store last read the file
+     * The mapping is kept while the file is still the one it maps; only a file
+     * replaced by another process's rebuild or clear is mapped again
+     */
+    public void reload() throws IOException {
+        if (mapsCurrentFile()) {
+            if (readHeaders()) {
+                return;
+            }
+        } else if (file.exists() && mapExisting()) {
+            return;
+        }
+        create(MIN_CAPACITY, MIN_HEAP_SIZE);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public ScheduledAlarm get(String id) {
+        int slot = find(utf8(id));
+        return slot < 0 ? null : readRecord(recordOffset(slot));
+    }
+
+    /**
+     * Read every live record
+     */
+    public List<ScheduledAlarm> readAll() {
+        List<ScheduledAlarm> alarms = new ArrayList<>(count);
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = recordOffset(slot);
+            if (isLive(offset)) {
+                alarms.add(readRecord(offset));
+            }
+        }
+        return alarms;
+    }
+
+    /**
+     * Insert or replace the record for alarm.id
+     */
+    public void put(ScheduledAlarm alarm) throws IOException {
+        byte[] id = utf8(alarm.id);
+        byte[] label = utf8(alarm.label != null ? alarm.label : "");
+        if (id.length > 0xFFFF || label.length > 0xFFFF) {
+            throw new IllegalArgumentException("Alarm id or label too long");
+        }
+
+        int needed = id.length + label.length;
+        if ((count + tombstones + 1) * 4 > capacity * 3 || heapUsed + needed > heapSize) {
+            rebuild(count + 1, needed);
+        }
+
+        int existing = find(id);
+        int idOffset = appendString(id);
+        int labelOffset = appendString(label);
+        // Make the new strings durable in the header before any record points at them
+        writeHeader();
+
+        int slot = freeSlot(hash(id), existing);
+        writeRecord(recordOffset(slot), alarm, id, idOffset, id.length, labelOffset, label.length);
+        if (existing >= 0) {
+            buffer.putInt(recordOffset(existing) + R_FLAGS, FLAG_TOMBSTONE);
+            tombstones++;
+        } else {
+            count++;
+        }
+    }
+
+    public boolean remove(String id) {
+        int slot = find(utf8(id));
+        if (slot < 0) {
+            return false;
+        }
+        buffer.putInt(recordOffset(slot) + R_FLAGS, FLAG_TOMBSTONE);
+        count--;
+        tombstones++;
+        return true;
+    }
+
+    public void clear() throws IOException {
+        create(MIN_CAPACITY, MIN_HEAP_SIZE);
+    }
+
+    /**
+     * Push dirty pages to disk; call once per logical operation or batch
+     */
+    public void flush() {
+        buffer.force();
+    }
+
+    private int find(byte[] idBytes) {
+        int hash = hash(idBytes);
+        int mask = capacity - 1;
+        for (int i = 0, slot = hash & mask; i < capacity; i++, slot = (slot + 1) & mask) {
+            int offset = recordOffset(slot);
+            int flags = buffer.getInt(offset + R_FLAGS);
+            if (flags == 0) {
+                return -1;
+            }
+            if (flags != FLAG_TOMBSTONE
+                    && buffer.getInt(offset + R_ID_HASH) == hash
+                    && isLive(offset)
+                    && idEquals(offset, idBytes)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int freeSlot(int hash, int skip) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            if (slot == skip) {
+                continue;
+            }
+            int offset = recordOffset(slot);
+            int flags = buffer.getInt(offset + R_FLAGS);
+            if (flags == 0) {
+                return slot;
+            }
+            if (flags == FLAG_TOMBSTONE || !isLive(offset)) {
+                tombstones--;
+                return slot;
+            }
+        }
+    }
+
+    private boolean isLive(int offset) {
+        int flags = buffer.getInt(offset + R_FLAGS);
+        return (flags & FLAG_USED) != 0
+            && (flags & FLAG_TOMBSTONE) == 0
+            && buffer.getInt(offset + R_CHECKSUM) == recordChecksum(offset, flags);
+    }
+
+    private boolean idEquals(int offset, byte[] id) {
+        int length = buffer.getShort(offset + R_ID_LENGTH) & 0xFFFF;
+        if (length != id.length) {
+            return false;
+        }
+        int heapOffset = heapStart() + buffer.getInt(offset + R_ID_OFFSET);
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(heapOffset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ScheduledAlarm readRecord(int offset) {
+        int flags = buffer.getInt(offset + R_FLAGS);
+        int schedule = buffer.getInt(offset + R_SCHEDULE);
+        int snooze = buffer.getInt(offset + R_SNOOZE);
+        String id = readString(buffer.getInt(offset + R_ID_OFFSET), buffer.getShort(offset + R_ID_LENGTH) & 0xFFFF);
+        String label = readString(buffer.getInt(offset + R_LABEL_OFFSET), buffer.getShort(offset + R_LABEL_LENGTH) & 0xFFFF);
+        int hour = (byte) (schedule >>> 16);
+        int minute = (byte) (schedule >>> 8);
+        return new ScheduledAlarm(
+            id,
+            label,
+            buffer.getLong(offset + R_TRIGGER_TIME),
+            (flags & FLAG_REPEATING) != 0,
+            hour,
+            minute,
+            schedule & AlarmRecurrence.ALL_DAYS,
+            buffer.getInt(offset + R_REQUEST_CODE),
+            buffer.getInt(offset + R_VIBRATION),
+            snooze >>> 16,
+            (snooze >>> 8) & 0xFF,
+            snooze & 0xFF
+        );
+    }
+
+    private void writeRecord(int offset, ScheduledAlarm alarm, byte[] id,
+                             int idOffset, int idLength, int labelOffset, int labelLength) {
+        int flags = FLAG_USED | (alarm.isRepeating ? FLAG_REPEATING : 0);
+        int schedule = ((alarm.hour & 0xFF) << 16) | ((alarm.minute & 0xFF) << 8) | (alarm.repeatDays & AlarmRecurrence.ALL_DAYS);
+        int snooze = ((alarm.snoozeMinutes & 0xFFFF) << 16) | ((alarm.maxSnoozes & 0xFF) << 8) | (alarm.snoozeCount & 0xFF);
+
+        // Body first, then checksum, then flags: the flags word is the commit point.
+        // The slot reads as a tombstone meanwhile, never as empty, so a crash
+        // here can not cut the probe chain of records stored past it
+        buffer.putInt(offset + R_FLAGS, FLAG_TOMBSTONE);
+        buffer.putInt(offset + R_ID_HASH, hash(id));
+        buffer.putLong(offset + R_TRIGGER_TIME, alarm.triggerTime);
+        buffer.putLong(offset + R_SEQ, nextSeq++);
+        buffer.putInt(offset + R_SCHEDULE, schedule);
+        buffer.putInt(offset + R_ID_OFFSET, idOffset);
+        buffer.putInt(offset + R_LABEL_OFFSET, labelOffset);
+        buffer.putShort(offset + R_ID_LENGTH, (short) idLength);
+        buffer.putShort(offset + R_LABEL_LENGTH, (short) labelLength);
+        buffer.putInt(offset + R_REQUEST_CODE, alarm.requestCode);
+        buffer.putInt(offset + R_VIBRATION, alarm.vibration);
+        buffer.putInt(offset + R_SNOOZE, snooze);
+        for (int i = R_SNOOZE + 4; i < R_CHECKSUM; i += 4) {
+            buffer.putInt(offset + i, 0);
+        }
+        buffer.putInt(offset + R_CHECKSUM, recordChecksum(offset, flags));
+        buffer.putInt(offset + R_FLAGS, flags);
+    }
+
+    private int appendString(byte[] bytes) {
+        int offset = heapUsed;
+        int position = heapStart() + offset;
+        for (int i = 0; i < bytes.length; i++) {
+            buffer.put(position + i, bytes[i]);
+        }
+        heapUsed += bytes.length;
+        return offset;
+    }
+
+    private String readString(int heapOffset, int length) {
+        byte[] bytes = new byte[length];
+        int position = heapStart() + heapOffset;
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int recordOffset(int slot) {
+        return HEADERS_SIZE + slot * RECORD_SIZE;
+    }
+
+    private int heapStart() {
+        return HEADERS_SIZE + capacity * RECORD_SIZE;
+    }
+
+    private void writeHeader() {
+        int offset = (activeHeader ^ 1) * HEADER_SIZE;
+        buffer.putInt(offset + H_MAGIC, MAGIC);
+        buffer.putInt(offset + H_VERSION, VERSION);
+        buffer.putLong(offset + H_GENERATION, generation + 1);
+        buffer.putInt(offset + H_CAPACITY, capacity);
+        buffer.putInt(offset + H_HEAP_SIZE, heapSize);
+        buffer.putInt(offset + H_HEAP_USED, heapUsed);
+        for (int i = H_HEAP_USED + 4; i < H_CHECKSUM; i += 4) {
+            buffer.putInt(offset + i, 0);
+        }
+        buffer.putInt(offset + H_CHECKSUM, checksum(offset, H_CHECKSUM));
+        generation++;
+        activeHeader ^= 1;
+    }
+
+    private boolean isValidHeader(int offset) {
+        return buffer.getInt(offset + H_MAGIC) == MAGIC
+            && buffer.getInt(offset + H_VERSION) == VERSION
+            && buffer.getInt(offset + H_CHECKSUM) == checksum(offset, H_CHECKSUM);
+    }
+
+    /**
+     * Map an existing file; returns false if neither header is usable
+     */
+    private boolean mapExisting() throws IOException {
+        map(file, (int) file.length());
+        return readHeaders();
+    }
+
+    /**
+     * Load the newest valid header from the mapping and recover the records
+     * Returns false if neither header is usable
+     */
+    private boolean readHeaders() {
+        if (buffer.capacity() < HEADERS_SIZE) {
+            return false;
+        }
+        boolean validA = isValidHeader(0);
+        boolean validB = isValidHeader(HEADER_SIZE);
+        if (!validA && !validB) {
+            return false;
+        }
+        if (validA && validB) {
+            activeHeader = buffer.getLong(H_GENERATION) >= buffer.getLong(HEADER_SIZE + H_GENERATION) ? 0 : 1;
+        } else {
+            activeHeader = validA ? 0 : 1;
+        }
+
+        int header = activeHeader * HEADER_SIZE;
+        generation = buffer.getLong(header + H_GENERATION);
+        capacity = buffer.getInt(header + H_CAPACITY);
+        heapSize = buffer.getInt(header + H_HEAP_SIZE);
+        heapUsed = buffer.getInt(header + H_HEAP_USED);
+        if (Integer.bitCount(capacity) != 1 || heapStart() + heapSize > buffer.capacity()) {
+            return false;
+        }
+        recover();
+        return true;
+    }
+
+    /**
+     * Count records and drop what a crash may have left behind: torn records,
+     * records pointing past the committed heap, and superseded duplicates
+     */
+    private void recover() {
+        Map<String, Integer> seen = new HashMap<>();
+        count = 0;
+        tombstones = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = recordOffset(slot);
+            int flags = buffer.getInt(offset + R_FLAGS);
+            if (flags == 0) {
+                continue;
+            }
+            if (!isLive(offset) || !withinHeap(offset)) {
+                buffer.putInt(offset + R_FLAGS, FLAG_TOMBSTONE);
+                tombstones++;
+                continue;
+            }
+
+            long seq = buffer.getLong(offset + R_SEQ);
+            nextSeq = Math.max(nextSeq, seq + 1);
+            String id = readString(buffer.getInt(offset + R_ID_OFFSET), buffer.getShort(offset + R_ID_LENGTH) & 0xFFFF);
+            Integer previous = seen.put(id, slot);
+            if (previous == null) {
+                count++;
+                continue;
+            }
+            // Keep whichever copy was written last
+            int previousOffset = recordOffset(previous);
+            if (buffer.getLong(previousOffset + R_SEQ) > seq) {
+                seen.put(id, previous);
+                buffer.putInt(offset + R_FLAGS, FLAG_TOMBSTONE);
+            } else {
+                buffer.putInt(previousOffset + R_FLAGS, FLAG_TOMBSTONE);
+            }
+            tombstones++;
+        }
+    }
+
+    /**
+     * Whether the path still names the file that is mapped. A replacement
+     * continues the generation count, so its headers never match the ones
+     * left in a stale mapping
+     */
+    private boolean mapsCurrentFile() throws IOException {
+        byte[] headers = new byte[HEADERS_SIZE];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.length() != buffer.capacity()) {
+                return false;
+            }
+            raf.readFully(headers);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        for (int i = 0; i < HEADERS_SIZE; i++) {
+            if (headers[i] != buffer.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean withinHeap(int offset) {
+        long idEnd = (long) buffer.getInt(offset + R_ID_OFFSET) + (buffer.getShort(offset + R_ID_LENGTH) & 0xFFFF);
+        long labelEnd = (long) buffer.getInt(offset + R_LABEL_OFFSET) + (buffer.getShort(offset + R_LABEL_LENGTH) & 0xFFFF);
+        return idEnd <= heapUsed && labelEnd <= heapUsed;
+    }
+
+    /**
+     * Rewrite live records into a fresh, compacted file sized for the given
+     * record count and extra heap, then swap it in with an atomic rename
+     */
+    private void rebuild(int minRecords, int extraHeap) throws IOException {
+        List<ScheduledAlarm> alarms = readAll();
+
+        int newCapacity = MIN_CAPACITY;
+        while (newCapacity < minRecords * 2) {
+            newCapacity <<= 1;
+        }
+        int liveHeap = 0;
+        for (ScheduledAlarm alarm : alarms) {
+            liveHeap += utf8(alarm.id).length + utf8(alarm.label != null ? alarm.label : "").length;
+        }
+        int newHeapSize = Math.max(MIN_HEAP_SIZE, Integer.highestOneBit(Math.max(1, (liveHeap + extraHeap) * 2)) << 1);
+
+        File temp = new File(file.getPath() + ".tmp");
+        AlarmStore rebuilt = new AlarmStore(temp);
+        rebuilt.generation = generation;
+        rebuilt.create(newCapacity, newHeapSize);
+        for (ScheduledAlarm alarm : alarms) {
+            rebuilt.put(alarm);
+        }
+        rebuilt.flush();
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace alarm store " + file);
+        }
+
+        buffer = rebuilt.buffer;
+        activeHeader = rebuilt.activeHeader;
+        generation = rebuilt.generation;
+        capacity = rebuilt.capacity;
+        heapSize = rebuilt.heapSize;
+        heapUsed = rebuilt.heapUsed;
+        count = rebuilt.count;
+        tombstones = rebuilt.tombstones;
+        nextSeq = rebuilt.nextSeq;
+    }
+
+    private void create(int newCapacity, int newHeapSize) throws IOException {
+        File temp = file.getName().endsWith(".tmp") ? file : new File(file.getPath() + ".tmp");
+        if (temp.exists() && !temp.delete()) {
+            throw new IOException("Could not delete " + temp);
+        }
+        capacity = newCapacity;
+        heapSize = newHeapSize;
+        heapUsed = 0;
+        count = 0;
+        tombstones = 0;
+        // generation carries on, so a process still mapping the replaced file can tell
+        activeHeader = 1;
+
+        map(temp, heapStart() + heapSize);
+        writeHeader();
+        buffer.force();
+        if (temp != file && !temp.renameTo(file)) {
+            throw new IOException("Could not create alarm store " + file);
+        }
+    }
+
+    private void map(File target, int size) throws IOException {
+        File parent = target.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(target, "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    /**
+     * FNV-1a over the int words of [offset, offset + length)
+     */
+    private int checksum(int offset, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i += 4) {
+            hash = (hash ^ buffer.getInt(offset + i)) * 0x01000193;
+        }
+        return hash;
+    }
+
+    /**
+     * Record checksum with the flags word taken from the argument, so it can be
+     * written before the flags word that commits the record
+     */
+    private int recordChecksum(int offset, int flags) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < R_CHECKSUM; i += 4) {
+            int word = i == R_FLAGS ? flags : buffer.getInt(offset + i);
+            hash = (hash ^ word) * 0x01000193;
+        }
+        return hash;
+    }
+
+    private static int hash(byte[] id) {
+        int hash = 0x811C9DC5;
+        for (byte b : id) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
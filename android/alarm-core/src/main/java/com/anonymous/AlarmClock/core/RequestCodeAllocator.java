@@ -0,0 +1,191 @@
+package com.anonymous.AlarmClock.core;
+
+import java.util.Arrays;
+
+/**
+ * Collision-free mapping from alarm ids to PendingIntent request codes
+ * Replaces alarmId.hashCode(), where two ids could share a code and overwrite
+ * or cancel each other's PendingIntent. Backed by an open-addressing table of
+ * String keys and int values (no boxing) with backward-shift deletion, plus a
+ * FIFO free list so released codes are reused least-recently-released first.
+ * Persistence is up to the owner; AlarmScheduler keeps codes in AlarmStore.
+ */
+public final class RequestCodeAllocator {
+    public static final int NONE = 0;
+    private static final int FIRST_CODE = 1;
+
+    private String[] keys = new String[64];
+    private int[] codes = new int[64];
+    private int size;
+
+    private int[] free = new int[16];
+    private int freeHead;
+    private int freeCount;
+    private int nextCode = FIRST_CODE;
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Code for an id, or NONE if it has none
+     */
+    public int get(String id) {
+        int slot = find(id);
+        return slot < 0 ? NONE : codes[slot];
+    }
+
+    /**
+     * Existing code for an id, or a newly assigned one
+     */
+    public int acquire(String id) {
+        int slot = find(id);
+        if (slot >= 0) {
+            return codes[slot];
+        }
+        int code = freeCount > 0 ? pollFree() : nextCode++;
+        insert(id, code);
+        return code;
+    }
+
+    /**
+     * Drop an id and return its code to the free list; returns the released code or NONE
+     */
+    public int release(String id) {
+        int slot = find(id);
+        if (slot < 0) {
+            return NONE;
+        }
+        int code = codes[slot];
+        deleteAt(slot);
+        pushFree(code);
+        return code;
+    }
+
+    /**
+     * Re-register a persisted assignment; call finishRestore() after the last one
+     */
+    public void restore(String id, int code) {
+        if (code < FIRST_CODE) {
+            return;
+        }
+        int slot = find(id);
+        if (slot >= 0) {
+            codes[slot] = code;
+        } else {
+            insert(id, code);
+        }
+        nextCode = Math.max(nextCode, code + 1);
+    }
+
+    /**
+     * Rebuild the free list from the gaps left between restored codes
+     */
+    public void finishRestore() {
+        boolean[] used = new boolean[nextCode];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                used[codes[i]] = true;
+            }
+        }
+        freeHead = 0;
+        freeCount = 0;
+        for (int code = FIRST_CODE; code < nextCode; code++) {
+            if (!used[code]) {
+                pushFree(code);
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        size = 0;
+        freeHead = 0;
+        freeCount = 0;
+        nextCode = FIRST_CODE;
+    }
+
+    private int find(String id) {
+        int mask = keys.length - 1;
+        for (int slot = hash(id) & mask; ; slot = (slot + 1) & mask) {
+            String key = keys[slot];
+            if (key == null) {
+                return -1;
+            }
+            if (key.equals(id)) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(String id, int code) {
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(id) & mask;
+        while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = id;
+        codes[slot] = code;
+        size++;
+    }
+
+    /**
+     * Linear-probing delete that shifts later entries back instead of leaving tombstones
+     */
+    private void deleteAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry back if the hole lies on its probe path
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                codes[hole] = codes[next];
+                hole = next;
+            }
+        }
+        keys[hole] = null;
+        size--;
+    }
+
+    private void resize(int newLength) {
+        String[] oldKeys = keys;
+        int[] oldCodes = codes;
+        keys = new String[newLength];
+        codes = new int[newLength];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldKeys[i], oldCodes[i]);
+            }
+        }
+    }
+
+    private void pushFree(int code) {
+        if (freeCount == free.length) {
+            int[] grown = new int[free.length * 2];
+            for (int i = 0; i < freeCount; i++) {
+                grown[i] = free[(freeHead + i) % free.length];
+            }
+            free = grown;
+            freeHead = 0;
+        }
+        free[(freeHead + freeCount) % free.length] = code;
+        freeCount++;
+    }
+
+    private int pollFree() {
+        int code = free[freeHead];
+        freeHead = (freeHead + 1) % free.length;
+        freeCount--;
+        return code;
+    }
+
+    private static int hash(String id) {
+        int h = id.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,76 @@
+package com.anonymous.AlarmClock.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of values built per request code, such as PendingIntents
+ * Each entry remembers the alarm id, label and snooze length it was built
+ * for, so a cached value is only reused while its extras are still current.
+ * Not thread-safe; AlarmScheduler guards it with its own lock
+ */
+public final class RequestCodeCache<V> {
+    private final int capacity;
+    private final LinkedHashMap<Integer, Entry<V>> entries;
+
+    public RequestCodeCache(final int capacity) {
+        this.capacity = capacity;
+        // Access order so get() refreshes recency
+        this.entries = new LinkedHashMap<Integer, Entry<V>>(capacity * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Cached value for a request code, or null if missing or built for other extras
+     */
+    public V get(int requestCode, String alarmId, String label, int snoozeMinutes) {
+        Entry<V> entry = entries.get(requestCode);
+        if (entry == null || !entry.alarmId.equals(alarmId) || !equal(entry.label, label)
+                || entry.snoozeMinutes != snoozeMinutes) {
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(int requestCode, String alarmId, String label, int snoozeMinutes, V value) {
+        entries.put(requestCode, new Entry<>(alarmId, label, snoozeMinutes, value));
+    }
+
+    public void remove(int requestCode) {
+        entries.remove(requestCode);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static final class Entry<V> {
+        final String alarmId;
+        final String label;
+        final int snoozeMinutes;
+        final V value;
+
+        Entry(String alarmId, String label, int snoozeMinutes, V value) {
+            this.alarmId = alarmId;
+            this.label = label;
+            this.snoozeMinutes = snoozeMinutes;
+            this.value = value;
+        }
+    }
+}
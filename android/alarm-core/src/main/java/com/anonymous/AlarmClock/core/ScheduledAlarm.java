@@ -0,0 +1,153 @@
+package com.anonymous.AlarmClock.core;
+
+/**
+ * A single pending alarm trigger held by the native scheduler
+ * Repeating alarms also carry their wall-clock time and weekday mask so the
+ * next occurrence can be computed natively when they fire
+ */
+public final class ScheduledAlarm {
+    public static final int NO_TIME = -1;
+    public static final int DEFAULT_SNOOZE_MINUTES = 5;
+    public static final int UNLIMITED_SNOOZES = 0;
+    // Largest values AlarmStore's packed snooze word holds
+    public static final int MAX_SNOOZE_MINUTES = 24 * 60;
+    public static final int MAX_SNOOZE_LIMIT = 255;
+
+    public final String id;
+    public final String label;
+    public final long triggerTime;
+    public final boolean isRepeating;
+    public final int hour;
+    public final int minute;
+    public final int repeatDays;
+    // PendingIntent request code from RequestCodeAllocator, or RequestCodeAllocator.NONE
+    public final int requestCode;
+    // Built-in VibrationPattern index
+    public final int vibration;
+    // Snooze length, 0 for DEFAULT_SNOOZE_MINUTES
+    public final int snoozeMinutes;
+    // Snoozes allowed per ring, or UNLIMITED_SNOOZES
+    public final int maxSnoozes;
+    // Times this ring has been snoozed; only snooze copies are above 0
+    public final int snoozeCount;
+
+    public ScheduledAlarm(String id, String label, long triggerTime, boolean isRepeating) {
+        this(id, label, triggerTime, isRepeating, NO_TIME, NO_TIME, 0);
+    }
+
+    public ScheduledAlarm(String id, String label, long triggerTime, boolean isRepeating,
+                   int hour, int minute, int repeatDays) {
+        this(id, label, triggerTime, isRepeating, hour, minute, repeatDays, RequestCodeAllocator.NONE);
+    }
+
+    public ScheduledAlarm(String id, String label, long triggerTime, boolean isRepeating,
+                   int hour, int minute, int repeatDays, int requestCode) {
+        this(id, label, triggerTime, isRepeating, hour, minute, repeatDays, requestCode, VibrationPattern.DEFAULT);
+    }
+
+    public ScheduledAlarm(String id, String label, long triggerTime, boolean isRepeating,
+                   int hour, int minute, int repeatDays, int requestCode, int vibration) {
+        this(id, label, triggerTime, isRepeating, hour, minute, repeatDays, requestCode, vibration,
+            0, UNLIMITED_SNOOZES, 0);
+    }
+
+    public ScheduledAlarm(String id, String label, long triggerTime, boolean isRepeating,
+                   int hour, int minute, int repeatDays, int requestCode, int vibration,
+                   int snoozeMinutes, int maxSnoozes, int snoozeCount) {
+        this.id = id;
+        this.label = label;
+        this.triggerTime = triggerTime;
+        this.isRepeating = isRepeating;
+        this.hour = hour;
+        this.minute = minute;
+        this.repeatDays = repeatDays;
+        this.requestCode = requestCode;
+        this.vibration = vibration;
+        this.snoozeMinutes = snoozeMinutes;
+        this.maxSnoozes = maxSnoozes;
+        this.snoozeCount = snoozeCount;
+    }
+
+    /**
+     * Whether the alarm is tied to a local hour:minute rather than a fixed instant
+     */
+    public boolean hasWallClockTime() {
+        return hour != NO_TIME && minute != NO_TIME;
+    }
+
+    /**
+     * Whether the next occurrence can be computed without JS
+     */
+    public boolean canRepeatNatively() {
+        return isRepeating && repeatDays != 0 && hasWallClockTime();
+    }
+
+    /**
+     * Whether another alarm would arm the same trigger with the same payload;
+     * the request code is assigned natively and is not compared
+     */
+    public boolean sameSchedule(ScheduledAlarm other) {
+        return triggerTime == other.triggerTime
+            && isRepeating == other.isRepeating
+            && hour == other.hour
+            && minute == other.minute
+            && repeatDays == other.repeatDays
+            && vibration == other.vibration
+            && snoozeMinutes == other.snoozeMinutes
+            && maxSnoozes == other.maxSnoozes
+            && snoozeCount == other.snoozeCount
+            && id.equals(other.id)
+            && (label == null ? other.label == null : label.equals(other.label));
+    }
+
+    /**
+     * Copy of this alarm moved to a new trigger time
+     */
+    public ScheduledAlarm withTriggerTime(long newTriggerTime) {
+        return new ScheduledAlarm(id, label, newTriggerTime, isRepeating, hour, minute, repeatDays, requestCode, vibration,
+            snoozeMinutes, maxSnoozes, snoozeCount);
+    }
+
+    /**
+     * Copy of this alarm carrying an allocated request code
+     */
+    public ScheduledAlarm withRequestCode(int newRequestCode) {
+        return new ScheduledAlarm(id, label, triggerTime, isRepeating, hour, minute, repeatDays, newRequestCode, vibration,
+            snoozeMinutes, maxSnoozes, snoozeCount);
+    }
+
+    public int snoozeLengthMinutes() {
+        return snoozeMinutes > 0 ? snoozeMinutes : DEFAULT_SNOOZE_MINUTES;
+    }
+
+    public boolean canSnooze() {
+        return maxSnoozes == UNLIMITED_SNOOZES || snoozeCount < maxSnoozes;
+    }
+
+    /**
+     * Snooze length to offer while this alarm rings, or 0 once the limit is reached
+     */
+    public int offeredSnoozeMinutes() {
+        return canSnooze() ? snoozeLengthMinutes() : 0;
+    }
+
+    /**
+     * Id of the alarm a snooze copy was made from; other ids are returned as is
+     */
+    public static String sourceId(String alarmId) {
+        return alarmId.startsWith(AlarmEngine.SNOOZE_PREFIX)
+            ? alarmId.substring(AlarmEngine.SNOOZE_PREFIX.length())
+            : alarmId;
+    }
+
+    /**
+     * One-time copy that rings again after the snooze length. It is stored
+     * under the snooze id so a repeating alarm keeps its next occurrence,
+     * and snoozing a snooze replaces it with a higher count
+     */
+    public ScheduledAlarm snoozed(long now) {
+        return new ScheduledAlarm(AlarmEngine.SNOOZE_PREFIX + sourceId(id), label,
+            now + snoozeLengthMinutes() * 60_000L, false, NO_TIME, NO_TIME, 0, RequestCodeAllocator.NONE, vibration,
+            snoozeMinutes, maxSnoozes, snoozeCount + 1);
+    }
+}
@@ -0,0 +1,182 @@
+package com.anonymous.AlarmClock.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A named vibration pattern compiled to the arrays Android's waveform API takes
+ * Patterns are built from pulses, pauses and amplitude ramps. Compiling
+ * expands each ramp into fixed-length steps, merges neighbouring steps of
+ * equal amplitude and derives an on/off fallback for vibrators without
+ * amplitude control. Built-in patterns are addressed by a small index so a
+ * per-alarm choice can be stored in AlarmStore and resolved with one lookup
+ */
+public final class VibrationPattern {
+    public static final int DEFAULT = 0;
+    public static final int ESCALATING = 1;
+    public static final int HEARTBEAT = 2;
+    public static final int SNOOZE = 3;
+    public static final int NONE = 4;
+
+    public static final int MAX_AMPLITUDE = 255;
+    // Length of each step a ramp is divided into
+    static final long RAMP_STEP_MS = 50;
+
+    private static final VibrationPattern[] BUILT_IN = {
+        builder("default").pulse(500).pause(500).repeat(),
+        builder("escalating").ramp(1500, 40, MAX_AMPLITUDE).pulse(500).pause(400).repeat(),
+        builder("heartbeat").pulse(120).pause(120).pulse(120).pause(640).repeat(),
+        builder("snooze").pulse(200).pause(150).pulse(200).once(),
+        builder("none").once(),
+    };
+
+    public final String name;
+    // Alternating off/on durations starting with off, for Vibrator without amplitude control
+    public final long[] timings;
+    // Per-step durations and amplitudes (0 = off), for amplitude-capable vibrators
+    public final long[] amplitudeTimings;
+    public final int[] amplitudes;
+    // Index into the timing arrays where a repeating pattern restarts, or -1
+    public final int repeatIndex;
+    public final int amplitudeRepeatIndex;
+
+    private VibrationPattern(String name, long[] timings, long[] amplitudeTimings, int[] amplitudes, boolean repeat) {
+        this.name = name;
+        this.timings = timings;
+        this.amplitudeTimings = amplitudeTimings;
+        this.amplitudes = amplitudes;
+        this.repeatIndex = repeat && timings.length > 0 ? 0 : -1;
+        this.amplitudeRepeatIndex = repeat && amplitudeTimings.length > 0 ? 0 : -1;
+    }
+
+    public boolean isEmpty() {
+        return amplitudeTimings.length == 0;
+    }
+
+    public static int count() {
+        return BUILT_IN.length;
+    }
+
+    public static VibrationPattern get(int index) {
+        return BUILT_IN[index >= 0 && index < BUILT_IN.length ? index : DEFAULT];
+    }
+
+    /**
+     * Index of a built-in pattern by name; unknown or null names fall back to DEFAULT
+     */
+    public static int indexOf(String name) {
+        for (int i = 0; i < BUILT_IN.length; i++) {
+            if (BUILT_IN[i].name.equals(name)) {
+                return i;
+            }
+        }
+        return DEFAULT;
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final List<long[]> steps = new ArrayList<>();
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Vibrate at full strength
+         */
+        public Builder pulse(long ms) {
+            return pulse(ms, MAX_AMPLITUDE);
+        }
+
+        public Builder pulse(long ms, int amplitude) {
+            if (amplitude < 0 || amplitude > MAX_AMPLITUDE) {
+                throw new IllegalArgumentException("Amplitude out of range: " + amplitude);
+            }
+            return step(ms, amplitude);
+        }
+
+        public Builder pause(long ms) {
+            return step(ms, 0);
+        }
+
+        /**
+         * Linear amplitude change across ms, in RAMP_STEP_MS steps
+         */
+        public Builder ramp(long ms, int from, int to) {
+            if (from < 0 || from > MAX_AMPLITUDE || to < 0 || to > MAX_AMPLITUDE) {
+                throw new IllegalArgumentException("Amplitude out of range: " + from + " -> " + to);
+            }
+            int count = (int) Math.max(1, (ms + RAMP_STEP_MS - 1) / RAMP_STEP_MS);
+            long done = 0;
+            for (int i = 0; i < count; i++) {
+                long length = (i + 1) * ms / count - done;
+                done += length;
+                int amplitude = count == 1 ? to : from + (int) Math.round((to - from) * (double) i / (count - 1));
+                step(length, amplitude);
+            }
+            return this;
+        }
+
+        public VibrationPattern repeat() {
+            return compile(true);
+        }
+
+        public VibrationPattern once() {
+            return compile(false);
+        }
+
+        private Builder step(long ms, int amplitude) {
+            if (ms < 0) {
+                throw new IllegalArgumentException("Negative duration: " + ms);
+            }
+            if (ms > 0) {
+                steps.add(new long[] {ms, amplitude});
+            }
+            return this;
+        }
+
+        private VibrationPattern compile(boolean repeat) {
+            // Amplitude waveform: merge neighbouring steps of the same strength
+            List<long[]> merged = new ArrayList<>();
+            for (long[] step : steps) {
+                long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && last[1] == step[1]) {
+                    last[0] += step[0];
+                } else {
+                    merged.add(new long[] {step[0], step[1]});
+                }
+            }
+            long[] amplitudeTimings = new long[merged.size()];
+            int[] amplitudes = new int[merged.size()];
+            for (int i = 0; i < merged.size(); i++) {
+                amplitudeTimings[i] = merged.get(i)[0];
+                amplitudes[i] = (int) merged.get(i)[1];
+            }
+
+            // On/off fallback: any strength is on; must start with an off slot
+            List<Long> onOff = new ArrayList<>();
+            boolean on = true;
+            for (long[] step : merged) {
+                boolean stepOn = step[1] > 0;
+                if (stepOn == on && !onOff.isEmpty()) {
+                    onOff.set(onOff.size() - 1, onOff.get(onOff.size() - 1) + step[0]);
+                } else {
+                    if (onOff.isEmpty() && stepOn) {
+                        onOff.add(0L);
+                    }
+                    onOff.add(step[0]);
+                    on = stepOn;
+                }
+            }
+            long[] timings = new long[onOff.size()];
+            for (int i = 0; i < timings.length; i++) {
+                timings[i] = onOff.get(i);
+            }
+            return new VibrationPattern(name, timings, amplitudeTimings, amplitudes, repeat);
+        }
+    }
+}
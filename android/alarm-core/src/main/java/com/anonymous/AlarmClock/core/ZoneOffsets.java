@@ -0,0 +1,148 @@
+package com.anonymous.AlarmClock.core;
+
+import java.time.Instant;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * UTC offsets of one zone over a window of days, cached per zone id
+ * The offset transitions in the window are read once from the java.time zone
+ * rules (TimeZone on releases without java.time), after which an offset lookup
+ * is a binary search over a handful of instants. Lookups outside the window
+ * fall back to the zone itself, so the window only affects speed.
+ */
+public final class ZoneOffsets {
+    private static final long HOUR_MS = 3_600_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    // AlarmRecurrence.nextTrigger looks up to eight days ahead plus a day either
+    // side for offset resolution; a table stays in use for two days after it is built
+    private static final long WINDOW_BEFORE_MS = 2 * DAY_MS;
+    private static final long WINDOW_AFTER_MS = 12 * DAY_MS;
+    private static final long REUSE_MS = 2 * DAY_MS;
+
+    private static final Map<String, ZoneOffsets> cache = new HashMap<>();
+
+    // java.time is missing before Android 8.0; probed by class rather than SDK level
+    private static final boolean HAS_JAVA_TIME = hasJavaTime();
+
+    private final TimeZone zone;
+    private final long from;
+    private final long until;
+    // offsets[i] applies before transitions[i]; the last offset applies after the last transition
+    private final long[] transitions;
+    private final int[] offsets;
+
+    /**
+     * Offsets for a zone, covering the days around now
+     */
+    public static synchronized ZoneOffsets forZone(TimeZone zone, long now) {
+        ZoneOffsets cached = cache.get(zone.getID());
+        if (cached == null || now < cached.from + WINDOW_BEFORE_MS
+                || now > cached.from + WINDOW_BEFORE_MS + REUSE_MS) {
+            cached = build((TimeZone) zone.clone(), now);
+            cache.put(zone.getID(), cached);
+        }
+        return cached;
+    }
+
+    /**
+     * Drop every cached table, e.g. after the zone rules or default zone changed
+     */
+    public static synchronized void invalidate() {
+        cache.clear();
+    }
+
+    private ZoneOffsets(TimeZone zone, long from, long until, long[] transitions, int[] offsets) {
+        this.zone = zone;
+        this.from = from;
+        this.until = until;
+        this.transitions = transitions;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Offset from UTC in millis at the given instant, DST included
+     */
+    public int getOffset(long millis) {
+        if (millis < from || millis >= until) {
+            return zone.getOffset(millis);
+        }
+        int index = Arrays.binarySearch(transitions, millis);
+        // An exact hit is the first instant of the new offset
+        return offsets[index >= 0 ? index + 1 : -index - 1];
+    }
+
+    /**
+     * Number of offset transitions inside the cached window
+     */
+    public int transitionCount() {
+        return transitions.length;
+    }
+
+    private static boolean hasJavaTime() {
+        try {
+            Class.forName("java.time.zone.ZoneRules");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static ZoneOffsets build(TimeZone zone, long now) {
+        long from = now - WINDOW_BEFORE_MS;
+        long until = now + WINDOW_AFTER_MS;
+        long[] transitions = new long[4];
+        int[] offsets = new int[5];
+        int count = 0;
+
+        if (HAS_JAVA_TIME) {
+            ZoneRules rules = zone.toZoneId().getRules();
+            offsets[0] = rules.getOffset(Instant.ofEpochMilli(from)).getTotalSeconds() * 1000;
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(from));
+            while (transition != null && transition.toEpochSecond() * 1000 < until) {
+                if (count == transitions.length) {
+                    transitions = Arrays.copyOf(transitions, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                }
+                transitions[count] = transition.toEpochSecond() * 1000;
+                offsets[++count] = transition.getOffsetAfter().getTotalSeconds() * 1000;
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        } else {
+            // Probe hourly and bisect each change down to the millisecond
+            offsets[0] = zone.getOffset(from);
+            int current = offsets[0];
+            for (long t = from; t < until; t += HOUR_MS) {
+                long end = Math.min(t + HOUR_MS, until);
+                int next = zone.getOffset(end);
+                if (next == current) {
+                    continue;
+                }
+                long low = t;
+                long high = end;
+                while (high - low > 1) {
+                    long mid = (low + high) >>> 1;
+                    if (zone.getOffset(mid) == current) {
+                        low = mid;
+                    } else {
+                        high = mid;
+                    }
+                }
+                if (count == transitions.length) {
+                    transitions = Arrays.copyOf(transitions, count * 2);
+                    offsets = Arrays.copyOf(offsets, count * 2 + 1);
+                }
+                transitions[count] = high;
+                offsets[++count] = next;
+                current = next;
+            }
+        }
+        return new ZoneOffsets(zone, from, until,
+            Arrays.copyOf(transitions, count), Arrays.copyOf(offsets, count + 1));
+    }
+}
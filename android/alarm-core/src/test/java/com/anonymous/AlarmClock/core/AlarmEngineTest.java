@@ -0,0 +1,277 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * AlarmEngine batch application against a real store file
+ */
+public class AlarmEngineTest {
+    // Monday 2024-03-04 06:30 UTC
+    private static final long NOW = 1_709_533_800_000L;
+    private static final long MINUTE = 60_000L;
+    private static final long DAY = 24 * 60 * MINUTE;
+
+    private File file;
+    private AlarmEngine engine;
+    private String armedId;
+    private long armedTime;
+    private int armCalls;
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() throws IOException {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        ZoneOffsets.invalidate();
+        file = File.createTempFile("alarms", ".store");
+        assertTrue(file.delete());
+        engine = new AlarmEngine(AlarmStore.open(file), new RecordingHost(), null, AlarmEngine.NOT_ARMED);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        TimeZone.setDefault(defaultZone);
+        ZoneOffsets.invalidate();
+    }
+
+    private static ScheduledAlarm alarm(String id, String label, long triggerTime) {
+        return new ScheduledAlarm(id, label, triggerTime, false,
+            ScheduledAlarm.NO_TIME, ScheduledAlarm.NO_TIME, 0);
+    }
+
+    private static ScheduledAlarm daily(String id, int hour, int minute, long triggerTime) {
+        return new ScheduledAlarm(id, "Daily " + id, triggerTime, true, hour, minute,
+            AlarmRecurrence.ALL_DAYS);
+    }
+
+    @Test
+    public void applyRecordsAnUnstorableAlarmAndKeepsGoing() throws IOException {
+        char[] huge = new char[0x10000];
+        Arrays.fill(huge, 'x');
+        List<ScheduledAlarm> schedules = Arrays.asList(
+            alarm("first", "First", NOW + 60_000),
+            alarm("too-long", new String(huge), NOW + 30_000),
+            alarm("last", "Last", NOW + 90_000));
+        Exception[] failures = new Exception[schedules.size()];
+
+        engine.apply(Collections.<String>emptyList(), schedules, failures);
+
+        assertNull(failures[0]);
+        assertTrue(failures[1] instanceof IllegalArgumentException);
+        assertNull(failures[2]);
+        assertEquals(2, engine.size());
+        assertNull(engine.get("too-long"));
+        assertNotNull(engine.get("last"));
+        assertEquals("first", armedId);
+
+        // The rejected alarm left nothing behind in the file either
+        AlarmEngine reopened = new AlarmEngine(AlarmStore.open(file), new RecordingHost(), null,
+            AlarmEngine.NOT_ARMED);
+        assertEquals(2, reopened.size());
+    }
+
+    @Test
+    public void rejectedAlarmCanBeScheduledOnceFixed() throws IOException {
+        char[] huge = new char[0x10000];
+        Arrays.fill(huge, 'x');
+        Exception[] failures = new Exception[1];
+        engine.apply(Collections.<String>emptyList(),
+            Collections.singletonList(alarm("retry", new String(huge), NOW + 60_000)), failures);
+        assertNotNull(failures[0]);
+
+        failures[0] = null;
+        engine.apply(Collections.<String>emptyList(),
+            Collections.singletonList(alarm("retry", "Short", NOW + 60_000)), failures);
+        assertNull(failures[0]);
+        assertEquals(1, engine.size());
+        assertEquals("retry", armedId);
+    }
+
+    @Test
+    public void pollDueComputesTheNextOccurrenceFromTheGivenTime() throws IOException {
+        engine.schedule(daily("daily", 6, 30, NOW));
+
+        // NOW is years before the real clock; the repeat must still land the next day
+        List<ScheduledAlarm> due = engine.pollDue(NOW + 1000);
+
+        assertEquals(1, due.size());
+        assertEquals(NOW + DAY, engine.peek().triggerTime);
+    }
+
+    @Test
+    public void wakeupFollowsTheEarliestAlarm() throws IOException {
+        engine.schedule(alarm("late", "Late", NOW + 3 * MINUTE));
+        engine.schedule(alarm("early", "Early", NOW + MINUTE));
+        engine.schedule(alarm("middle", "Middle", NOW + 2 * MINUTE));
+        assertEquals("early", armedId);
+        assertEquals(NOW + MINUTE, armedTime);
+
+        // Removing the head arms the next one; removing another leaves it alone
+        assertTrue(engine.cancel("early"));
+        assertEquals("middle", armedId);
+        assertTrue(engine.cancel("late"));
+        assertEquals("middle", armedId);
+        assertFalse(engine.cancel("late"));
+
+        // Moving an alarm ahead of the head takes over the wakeup
+        engine.schedule(alarm("late", "Late", NOW + 4 * MINUTE));
+        assertTrue(engine.reschedule("late", NOW + 30_000));
+        assertEquals("late", armedId);
+        assertEquals(NOW + 30_000, armedTime);
+
+        assertTrue(engine.cancel("late"));
+        assertTrue(engine.cancel("middle"));
+        assertNull(armedId);
+        assertNull(engine.peek());
+    }
+
+    @Test
+    public void pollDueRearmsRepeatingAlarmsAndDropsOneTimeOnes() throws IOException {
+        ScheduledAlarm weekdays = new ScheduledAlarm("weekdays", "Work", NOW, true, 6, 30,
+            AlarmRecurrence.MON | AlarmRecurrence.WED);
+        engine.schedule(weekdays);
+        engine.schedule(alarm("once", "Once", NOW - 1000));
+        engine.schedule(alarm("later", "Later", NOW + 3 * DAY));
+        int requestCode = engine.get("weekdays").requestCode;
+
+        List<ScheduledAlarm> due = engine.pollDue(NOW);
+
+        assertEquals(2, due.size());
+        assertEquals("once", due.get(0).id);
+        assertEquals("weekdays", due.get(1).id);
+        assertNull(engine.get("once"));
+        // Monday's ring moves to Wednesday, keeping its request code
+        ScheduledAlarm next = engine.get("weekdays");
+        assertEquals(NOW + 2 * DAY, next.triggerTime);
+        assertEquals(requestCode, next.requestCode);
+        assertEquals("weekdays", armedId);
+        assertEquals(NOW + 2 * DAY, armedTime);
+
+        AlarmEngine reopened = new AlarmEngine(AlarmStore.open(file), new RecordingHost(), null,
+            AlarmEngine.NOT_ARMED);
+        assertEquals(2, reopened.size());
+        assertEquals(NOW + 2 * DAY, reopened.peek().triggerTime);
+    }
+
+    @Test
+    public void restoreKeepsAlarmsMissedWithinTheGraceWindow() throws IOException {
+        engine.schedule(alarm("just-missed", "A", NOW - 5 * MINUTE));
+        engine.schedule(alarm("at-limit", "B", NOW - 10 * MINUTE));
+        engine.schedule(alarm("stale", "C", NOW - 11 * MINUTE));
+        engine.schedule(daily("daily", 6, 30, NOW - 2 * DAY));
+        engine.schedule(alarm("future", "D", NOW + MINUTE));
+
+        // After a reboot the host still remembers the pre-reboot registration
+        AlarmEngine rebooted = new AlarmEngine(AlarmStore.open(file), new RecordingHost(), armedId,
+            armedTime);
+        armedId = null;
+        assertEquals(4, rebooted.restore(NOW));
+
+        assertNotNull(rebooted.get("just-missed"));
+        assertNotNull(rebooted.get("at-limit"));
+        assertNull(rebooted.get("stale"));
+        // Strictly after now, so today's 06:30 has passed too
+        assertEquals(NOW + DAY, rebooted.get("daily").triggerTime);
+        assertEquals(NOW + MINUTE, rebooted.get("future").triggerTime);
+        // The oldest kept alarm is registered again and rings right away
+        assertEquals("at-limit", armedId);
+        assertEquals(NOW - 10 * MINUTE, armedTime);
+    }
+
+    @Test
+    public void reconcileAppliesOnlyTheDiff() throws IOException {
+        engine.scheduleAll(Arrays.asList(
+            alarm("kept", "Kept", NOW + MINUTE),
+            alarm("moved", "Moved", NOW + 2 * MINUTE),
+            alarm("gone", "Gone", NOW + 3 * MINUTE),
+            alarm(AlarmEngine.SNOOZE_PREFIX + "kept", "Snoozed", NOW + 4 * MINUTE)));
+        int codeOfKept = engine.get("kept").requestCode;
+        int armed = armCalls;
+
+        AlarmEngine.Reconciliation result = engine.reconcile(Arrays.asList(
+            alarm("kept", "Kept", NOW + MINUTE),
+            alarm("moved", "Moved", NOW + 5 * MINUTE),
+            alarm("new", "New", NOW + 6 * MINUTE)));
+
+        assertEquals(1, result.added);
+        assertEquals(1, result.updated);
+        assertEquals(1, result.removed);
+        assertEquals(1, result.unchanged);
+        assertEquals(1, engine.getSkippedCalls());
+        // Snoozes are not part of the app's set and survive
+        assertEquals(4, engine.size());
+        assertNull(engine.get("gone"));
+        assertNotNull(engine.get(AlarmEngine.SNOOZE_PREFIX + "kept"));
+        assertEquals(codeOfKept, engine.get("kept").requestCode);
+        // The head did not change, so the wakeup was not registered again
+        assertEquals(armed, armCalls);
+
+        engine.schedule(alarm("kept", "Kept", NOW + MINUTE));
+        assertEquals(2, engine.getSkippedCalls());
+        assertEquals(armed, armCalls);
+    }
+
+    @Test
+    public void recomputeWallClockFollowsAZoneChange() throws IOException {
+        engine.schedule(daily("daily", 7, 0, NOW + 30 * MINUTE));
+        engine.schedule(new ScheduledAlarm("once", "Once", NOW + 90 * MINUTE, false, 8, 0, 0));
+        engine.schedule(alarm("timer", "Timer", NOW + 45 * MINUTE));
+        engine.schedule(daily("due", 6, 0, NOW - MINUTE));
+
+        // Berlin is UTC+1 in early March, so it is already 07:30 there
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+        ZoneOffsets.invalidate();
+        assertEquals(2, engine.recomputeWallClock(NOW));
+
+        assertEquals(NOW + DAY - 30 * MINUTE, engine.get("daily").triggerTime);
+        assertEquals(NOW + 30 * MINUTE, engine.get("once").triggerTime);
+        // Neither a plain timer nor an alarm already due is moved
+        assertEquals(NOW + 45 * MINUTE, engine.get("timer").triggerTime);
+        assertEquals(NOW - MINUTE, engine.get("due").triggerTime);
+        assertEquals("due", armedId);
+    }
+
+    private final class RecordingHost implements AlarmEngine.Host {
+        @Override
+        public void armWakeup(String alarmId, long triggerTime) {
+            armedId = alarmId;
+            armedTime = triggerTime;
+            armCalls++;
+        }
+
+        @Override
+        public void disarmWakeup() {
+            armedId = null;
+            armedTime = AlarmEngine.NOT_ARMED;
+        }
+
+        @Override
+        public void onUnknownAlarm(String alarmId) {
+        }
+
+        @Override
+        public void onRequestCodeReleased(int requestCode) {
+        }
+
+        @Override
+        public void onStoreError(String alarmId, IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
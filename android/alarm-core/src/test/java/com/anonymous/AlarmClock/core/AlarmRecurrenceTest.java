@@ -0,0 +1,144 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * AlarmRecurrence checked against a java.time port of notificationService.getNextOccurrence
+ */
+public class AlarmRecurrenceTest {
+    private static final String[] ZONES = {
+        "UTC", "Europe/Berlin", "Europe/London", "America/New_York", "America/St_Johns",
+        "America/Sao_Paulo", "Asia/Kolkata", "Australia/Lord_Howe", "Pacific/Apia", "Pacific/Chatham",
+    };
+    private static final long FROM = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+    private static final long TO = Instant.parse("2030-01-01T00:00:00Z").toEpochMilli();
+
+    /**
+     * Next hour:minute strictly after now on a day in mask; ZonedDateTime.of
+     * resolves gaps and overlaps the way JS Date.setHours does
+     */
+    private static long reference(long now, ZoneId zone, int hour, int minute, int mask) {
+        Instant instant = Instant.ofEpochMilli(now);
+        LocalTime time = LocalTime.of(hour, minute);
+        LocalDate day = instant.atZone(zone).toLocalDate();
+        if (!ZonedDateTime.of(day, time, zone).toInstant().isAfter(instant)) {
+            day = day.plusDays(1);
+        }
+        for (int i = 0; i < 7; i++, day = day.plusDays(1)) {
+            if (mask == 0 || (mask & (1 << (day.getDayOfWeek().getValue() - 1))) != 0) {
+                return ZonedDateTime.of(day, time, zone).toInstant().toEpochMilli();
+            }
+        }
+        throw new AssertionError("No day in mask " + mask);
+    }
+
+    private static void check(long now, String zoneId, int hour, int minute, int mask) {
+        ZoneOffsets offsets = ZoneOffsets.forZone(TimeZone.getTimeZone(zoneId), now);
+        long expected = reference(now, ZoneId.of(zoneId), hour, minute, mask);
+        long actual = AlarmRecurrence.nextTrigger(now, offsets, hour, minute, mask);
+        assertEquals(zoneId + " now=" + Instant.ofEpochMilli(now) + " " + hour + ":" + minute + " mask=" + mask
+            + " expected " + Instant.ofEpochMilli(expected) + " got " + Instant.ofEpochMilli(actual),
+            expected, actual);
+    }
+
+    @Test
+    public void matchesJavaTimeAtRandomInstants() {
+        Random random = new Random(42);
+        for (String zone : ZONES) {
+            for (int i = 0; i < 20_000; i++) {
+                long now = FROM + (long) (random.nextDouble() * (TO - FROM));
+                check(now, zone, random.nextInt(24), random.nextInt(60), random.nextInt(AlarmRecurrence.ALL_DAYS + 1));
+            }
+        }
+    }
+
+    @Test
+    public void matchesJavaTimeAroundOffsetTransitions() {
+        Random random = new Random(7);
+        for (String zoneId : ZONES) {
+            ZoneId zone = ZoneId.of(zoneId);
+            ZoneOffsetTransition transition = zone.getRules().nextTransition(Instant.ofEpochMilli(FROM));
+            while (transition != null && transition.toEpochSecond() * 1000 < TO) {
+                long at = transition.toEpochSecond() * 1000;
+                LocalDateTime before = transition.getDateTimeBefore();
+                // Alarms set inside or next to the gap/overlap, asked for from either side of it
+                for (long now : new long[] {at - 86_400_000L, at - 3_600_000L, at - 1, at, at + 1, at + 3_600_000L}) {
+                    for (int delta = -90; delta <= 90; delta += 15) {
+                        LocalTime time = before.toLocalTime().plusMinutes(delta);
+                        check(now, zoneId, time.getHour(), time.getMinute(), 0);
+                        check(now, zoneId, time.getHour(), time.getMinute(), 1 + random.nextInt(AlarmRecurrence.ALL_DAYS));
+                    }
+                }
+                transition = zone.getRules().nextTransition(transition.getInstant());
+            }
+        }
+    }
+
+    @Test
+    public void exactlyNowMovesToTheNextOccurrence() {
+        long now = Instant.parse("2024-03-04T06:30:00Z").toEpochMilli();
+        ZoneOffsets utc = ZoneOffsets.forZone(TimeZone.getTimeZone("UTC"), now);
+        // Monday 06:30 is not strictly after now; the next Monday is
+        assertEquals(now + 7 * 86_400_000L, AlarmRecurrence.nextTrigger(now, utc, 6, 30, AlarmRecurrence.MON));
+        assertEquals(now + 86_400_000L, AlarmRecurrence.nextTrigger(now, utc, 6, 30, 0));
+        assertEquals(now + 60_000L, AlarmRecurrence.nextTrigger(now, utc, 6, 31, AlarmRecurrence.MON));
+    }
+
+    @Test
+    public void daysUntilMatchesLinearScan() {
+        for (int mask = 1; mask <= AlarmRecurrence.ALL_DAYS; mask++) {
+            for (int dow = 0; dow < 7; dow++) {
+                int expected = 0;
+                while ((mask & (1 << ((dow + expected) % 7))) == 0) {
+                    expected++;
+                }
+                assertEquals("dow=" + dow + " mask=" + mask, expected, AlarmRecurrence.daysUntil(dow, mask));
+            }
+        }
+    }
+
+    @Test
+    public void dayOfWeekMatchesJavaTime() {
+        for (long epochDay = -1000; epochDay < 30_000; epochDay++) {
+            DayOfWeek expected = LocalDate.ofEpochDay(epochDay).getDayOfWeek();
+            assertEquals(expected.getValue() - 1, AlarmRecurrence.dayOfWeek(epochDay));
+        }
+    }
+
+    @Test
+    public void dayBitsFollowJsRepeatDayOrder() {
+        for (int i = 0; i < AlarmRecurrence.DAY_NAMES.length; i++) {
+            assertEquals(1 << i, AlarmRecurrence.dayBit(AlarmRecurrence.DAY_NAMES[i]));
+        }
+        assertEquals(0, AlarmRecurrence.dayBit("Someday"));
+        assertEquals(0, AlarmRecurrence.dayBit(null));
+    }
+
+    @Test
+    public void zoneOffsetsMatchTimeZone() {
+        Random random = new Random(3);
+        for (String zoneId : ZONES) {
+            TimeZone zone = TimeZone.getTimeZone(zoneId);
+            for (int i = 0; i < 2_000; i++) {
+                long now = FROM + (long) (random.nextDouble() * (TO - FROM));
+                ZoneOffsets offsets = ZoneOffsets.forZone(zone, now);
+                for (long t = now - 86_400_000L; t < now + 10 * 86_400_000L; t += 3_599_999L) {
+                    assertEquals(zoneId + " at " + Instant.ofEpochMilli(t), zone.getOffset(t), offsets.getOffset(t));
+                }
+            }
+        }
+    }
+}
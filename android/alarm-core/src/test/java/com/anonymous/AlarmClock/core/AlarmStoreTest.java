@@ -0,0 +1,348 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * AlarmStore round trips and recovery from the states a crash can leave
+ * The corruption tests poke the file directly, so they repeat the layout:
+ * two 64-byte headers, then 64-byte records with flags at +4 and the
+ * checksum at +60
+ */
+public class AlarmStoreTest {
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORDS_START = HEADER_SIZE * 2;
+    private static final int H_GENERATION = 8;
+    private static final int H_CAPACITY = 16;
+    private static final int R_FLAGS = 4;
+    private static final int R_TRIGGER_TIME = 8;
+    private static final int R_ID_OFFSET = 28;
+    private static final int R_ID_LENGTH = 36;
+    private static final int R_CHECKSUM = 60;
+    private static final int FLAG_USED = 1;
+    private static final int FLAG_TOMBSTONE = 2;
+
+    private static final long NOW = 1_709_533_800_000L;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("alarms", ".store");
+        assertTrue(file.delete());
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".tmp").delete();
+    }
+
+    private static ScheduledAlarm alarm(String id, long triggerTime) {
+        return new ScheduledAlarm(id, "Label " + id, triggerTime, false,
+            ScheduledAlarm.NO_TIME, ScheduledAlarm.NO_TIME, 0);
+    }
+
+    @Test
+    public void putRemoveAndReopen() throws IOException {
+        AlarmStore store = AlarmStore.open(file);
+        ScheduledAlarm repeating = new ScheduledAlarm("weekday", "Work", NOW, true, 6, 45,
+            AlarmRecurrence.dayBit("Mon") | AlarmRecurrence.dayBit("Fri"), 7,
+            VibrationPattern.HEARTBEAT, 10, 3, 2);
+        store.put(repeating);
+        store.put(alarm("once", NOW + 1000));
+        store.put(alarm("gone", NOW + 2000));
+        assertTrue(store.remove("gone"));
+        assertFalse(store.remove("gone"));
+        store.put(alarm("once", NOW + 5000));
+        store.flush();
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(2, reopened.size());
+        assertNull(reopened.get("gone"));
+        assertEquals(NOW + 5000, reopened.get("once").triggerTime);
+
+        ScheduledAlarm read = reopened.get("weekday");
+        assertEquals("Work", read.label);
+        assertTrue(read.isRepeating);
+        assertEquals(6, read.hour);
+        assertEquals(45, read.minute);
+        assertEquals(repeating.repeatDays, read.repeatDays);
+        assertEquals(7, read.requestCode);
+        assertEquals(VibrationPattern.HEARTBEAT, read.vibration);
+        assertEquals(10, read.snoozeMinutes);
+        assertEquals(3, read.maxSnoozes);
+        assertEquals(2, read.snoozeCount);
+    }
+
+    @Test
+    public void lookupsProbePastTombstones() throws IOException {
+        List<String> sameSlot = idsWithHomeSlot(5, 4);
+        AlarmStore store = AlarmStore.open(file);
+        for (String id : sameSlot) {
+            store.put(alarm(id, NOW));
+        }
+        // Tombstone the head of the chain and one in the middle
+        assertTrue(store.remove(sameSlot.get(0)));
+        assertTrue(store.remove(sameSlot.get(2)));
+        assertNotNull(store.get(sameSlot.get(1)));
+        assertNotNull(store.get(sameSlot.get(3)));
+
+        // A new id reuses the first tombstone without hiding the rest
+        List<String> more = idsWithHomeSlot(5, 5);
+        String reuser = more.get(4);
+        store.put(alarm(reuser, NOW));
+        store.flush();
+        assertEquals(3, store.size());
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(3, reopened.size());
+        assertNull(reopened.get(sameSlot.get(0)));
+        assertNull(reopened.get(sameSlot.get(2)));
+        assertNotNull(reopened.get(sameSlot.get(1)));
+        assertNotNull(reopened.get(sameSlot.get(3)));
+        assertNotNull(reopened.get(reuser));
+    }
+
+    @Test
+    public void recordTornWhileReusingATombstoneKeepsTheChainReachable() throws IOException {
+        List<String> sameSlot = idsWithHomeSlot(9, 3);
+        AlarmStore store = AlarmStore.open(file);
+        for (String id : sameSlot) {
+            store.put(alarm(id, NOW));
+        }
+        store.remove(sameSlot.get(0));
+        store.flush();
+
+        // What a crash in the middle of rewriting the head slot leaves: a
+        // half-written body behind a flags word that still reads as a tombstone
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int head = RECORDS_START + 9 * AlarmStore.RECORD_SIZE;
+            raf.seek(head + R_TRIGGER_TIME);
+            raf.writeLong(0x1234);
+            assertEquals(FLAG_TOMBSTONE, readIntLe(raf, head + R_FLAGS));
+        }
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(2, reopened.size());
+        assertNull(reopened.get(sameSlot.get(0)));
+        assertNotNull(reopened.get(sameSlot.get(1)));
+        assertNotNull(reopened.get(sameSlot.get(2)));
+    }
+
+    @Test
+    public void recordWithBadChecksumIsDroppedOnOpen() throws IOException {
+        AlarmStore store = AlarmStore.open(file);
+        store.put(alarm("kept", NOW));
+        store.put(alarm("torn", NOW + 1000));
+        store.flush();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            int offset = recordOffsetOf(raf, "torn");
+            assertEquals(FLAG_USED, readIntLe(raf, offset + R_FLAGS));
+            int checksum = readIntLe(raf, offset + R_CHECKSUM);
+            raf.seek(offset + R_CHECKSUM);
+            raf.writeInt(Integer.reverseBytes(checksum ^ 0x5A5A5A5A));
+        }
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(1, reopened.size());
+        assertNull(reopened.get("torn"));
+        assertNotNull(reopened.get("kept"));
+
+        // The slot is usable again
+        reopened.put(alarm("torn", NOW + 2000));
+        assertEquals(NOW + 2000, reopened.get("torn").triggerTime);
+        assertEquals(2, reopened.size());
+    }
+
+    @Test
+    public void newestHeaderLostFallsBackAndDropsRecordsPastTheOldHeap() throws IOException {
+        AlarmStore store = AlarmStore.open(file);
+        store.put(alarm("first", NOW));
+        store.put(alarm("second", NOW + 1000));
+        store.flush();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long generationA = readLongLe(raf, H_GENERATION);
+            long generationB = readLongLe(raf, HEADER_SIZE + H_GENERATION);
+            int newest = generationA > generationB ? 0 : HEADER_SIZE;
+            // The header written for "second" never made it to disk
+            raf.seek(newest + H_CAPACITY);
+            raf.writeInt(0x7FFFFFFF);
+        }
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(1, reopened.size());
+        assertNotNull(reopened.get("first"));
+        assertNull(reopened.get("second"));
+    }
+
+    @Test
+    public void unreadableFileStartsEmpty() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.write(new byte[300]);
+        }
+        AlarmStore store = AlarmStore.open(file);
+        assertEquals(0, store.size());
+        store.put(alarm("fresh", NOW));
+        assertNotNull(AlarmStore.open(file).get("fresh"));
+    }
+
+    @Test
+    public void growingRebuildsThroughTmpFile() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        // Leftover from a crash during an earlier rebuild
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.write(new byte[100]);
+        }
+
+        AlarmStore store = AlarmStore.open(file);
+        int total = 500;
+        for (int i = 0; i < total; i++) {
+            store.put(alarm("alarm-" + i, NOW + i));
+        }
+        for (int i = 0; i < total; i += 2) {
+            store.remove("alarm-" + i);
+        }
+        store.flush();
+        assertFalse(temp.exists());
+
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(total / 2, reopened.size());
+        for (int i = 0; i < total; i++) {
+            ScheduledAlarm read = reopened.get("alarm-" + i);
+            if (i % 2 == 0) {
+                assertNull(read);
+            } else {
+                assertEquals(NOW + i, read.triggerTime);
+            }
+        }
+        assertEquals(total / 2, reopened.readAll().size());
+    }
+
+    @Test
+    public void reloadSeesWritesFromAnotherInstance() throws IOException {
+        AlarmStore mine = AlarmStore.open(file);
+        mine.put(alarm("shared", NOW));
+        mine.flush();
+
+        AlarmStore other = AlarmStore.open(file);
+        other.put(alarm("added", NOW + 1000));
+        other.put(alarm("shared", NOW + 2000));
+        other.flush();
+
+        mine.reload();
+        assertEquals(2, mine.size());
+        assertEquals(NOW + 2000, mine.get("shared").triggerTime);
+        assertNotNull(mine.get("added"));
+    }
+
+    @Test
+    public void reloadFollowsAFileReplacedByAnotherInstance() throws IOException {
+        AlarmStore mine = AlarmStore.open(file);
+
+        // Clearing renames a new empty file over this one, which would
+        // otherwise look exactly like the freshly created one still mapped
+        AlarmStore other = AlarmStore.open(file);
+        other.clear();
+        mine.reload();
+        mine.put(alarm("first", NOW));
+        mine.flush();
+        assertNotNull(AlarmStore.open(file).get("first"));
+
+        other.clear();
+        mine.reload();
+        assertEquals(0, mine.size());
+
+        // Growing rebuilds the file through a rename too
+        for (int i = 0; i < 100; i++) {
+            other.put(alarm("alarm-" + i, NOW + i));
+        }
+        other.flush();
+        mine.reload();
+        assertEquals(100, mine.size());
+
+        // Writes land in the file on disk, not in a replaced one
+        mine.put(alarm("mine", NOW));
+        mine.flush();
+        AlarmStore reopened = AlarmStore.open(file);
+        assertEquals(101, reopened.size());
+        assertNotNull(reopened.get("mine"));
+    }
+
+    /**
+     * count ids whose home slot in the initial 64-slot table is slot
+     */
+    private static List<String> idsWithHomeSlot(int slot, int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; ids.size() < count; i++) {
+            String id = "probe-" + i;
+            if ((hash(id.getBytes(StandardCharsets.UTF_8)) & 63) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    // Same as AlarmStore.hash
+    private static int hash(byte[] id) {
+        int hash = 0x811C9DC5;
+        for (byte b : id) {
+            hash = (hash ^ (b & 0xFF)) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int recordOffsetOf(RandomAccessFile raf, String id) throws IOException {
+        byte[] all = new byte[(int) raf.length()];
+        raf.seek(0);
+        raf.readFully(all);
+        ByteBuffer buffer = ByteBuffer.wrap(all).order(ByteOrder.LITTLE_ENDIAN);
+        int capacity = Math.max(buffer.getInt(H_CAPACITY), buffer.getInt(HEADER_SIZE + H_CAPACITY));
+        int heapStart = RECORDS_START + capacity * AlarmStore.RECORD_SIZE;
+        byte[] wanted = id.getBytes(StandardCharsets.UTF_8);
+        for (int slot = 0; slot < capacity; slot++) {
+            int offset = RECORDS_START + slot * AlarmStore.RECORD_SIZE;
+            if (buffer.getInt(offset + R_FLAGS) != FLAG_USED
+                    || (buffer.getShort(offset + R_ID_LENGTH) & 0xFFFF) != wanted.length) {
+                continue;
+            }
+            int start = heapStart + buffer.getInt(offset + R_ID_OFFSET);
+            boolean match = true;
+            for (int i = 0; i < wanted.length && match; i++) {
+                match = all[start + i] == wanted[i];
+            }
+            if (match) {
+                return offset;
+            }
+        }
+        throw new AssertionError("No record for " + id);
+    }
+
+    private static int readIntLe(RandomAccessFile raf, long position) throws IOException {
+        raf.seek(position);
+        return Integer.reverseBytes(raf.readInt());
+    }
+
+    private static long readLongLe(RandomAccessFile raf, long position) throws IOException {
+        raf.seek(position);
+        return Long.reverseBytes(raf.readLong());
+    }
+}
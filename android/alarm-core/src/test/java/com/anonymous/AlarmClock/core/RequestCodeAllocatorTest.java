@@ -0,0 +1,173 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Stress test for RequestCodeAllocator: 100k ids, churn and restore
+ * Every live id must hold a distinct code, including ids whose
+ * String.hashCode() collide, which is what alarmId.hashCode() got wrong
+ */
+public class RequestCodeAllocatorTest {
+    private static final int IDS = 100_000;
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add("alarm-" + i);
+        }
+        return ids;
+    }
+
+    /**
+     * 2^bits distinct strings with one shared hashCode ("Aa" and "BB" hash alike)
+     */
+    private static List<String> collidingIds(int bits) {
+        List<String> ids = new ArrayList<>(1 << bits);
+        for (int n = 0; n < 1 << bits; n++) {
+            StringBuilder id = new StringBuilder("snooze-");
+            for (int b = 0; b < bits; b++) {
+                id.append((n & (1 << b)) != 0 ? "BB" : "Aa");
+            }
+            ids.add(id.toString());
+        }
+        return ids;
+    }
+
+    /**
+     * Codes of all live ids are distinct and positive; returns how many ids are live
+     */
+    private static int assertDistinct(RequestCodeAllocator allocator, List<String> ids) {
+        BitSet seen = new BitSet();
+        int live = 0;
+        for (String id : ids) {
+            int code = allocator.get(id);
+            if (code == RequestCodeAllocator.NONE) {
+                continue;
+            }
+            assertTrue("Non-positive code for " + id, code > 0);
+            assertTrue("Code " + code + " shared by " + id, !seen.get(code));
+            seen.set(code);
+            live++;
+        }
+        assertEquals(allocator.size(), live);
+        return live;
+    }
+
+    @Test
+    public void hundredThousandIdsGetDistinctCodes() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        List<String> ids = ids(IDS);
+        for (String id : ids) {
+            allocator.acquire(id);
+        }
+        assertEquals(IDS, assertDistinct(allocator, ids));
+        // Dense: codes are 1..IDS with no gaps
+        for (String id : ids) {
+            assertTrue(allocator.get(id) <= IDS);
+        }
+        // acquire is idempotent
+        assertEquals(allocator.get("alarm-123"), allocator.acquire("alarm-123"));
+    }
+
+    @Test
+    public void collidingHashCodesGetDistinctCodes() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        List<String> ids = collidingIds(10);
+        for (String id : ids) {
+            assertEquals(ids.get(0).hashCode(), id.hashCode());
+            allocator.acquire(id);
+        }
+        assertEquals(ids.size(), assertDistinct(allocator, ids));
+    }
+
+    @Test
+    public void churnReusesReleasedCodesWithoutCollisions() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        List<String> ids = ids(IDS);
+        Random random = new Random(1);
+        for (int op = 0; op < 4 * IDS; op++) {
+            String id = ids.get(random.nextInt(IDS));
+            if (random.nextInt(3) == 0) {
+                allocator.release(id);
+            } else {
+                allocator.acquire(id);
+            }
+        }
+        int live = assertDistinct(allocator, ids);
+        // Released codes are reused before new ones are minted, so codes stay dense
+        int max = 0;
+        for (String id : ids) {
+            max = Math.max(max, allocator.get(id));
+        }
+        assertTrue("max code " + max + " for " + live + " live ids", max <= IDS);
+    }
+
+    @Test
+    public void releasedCodesAreReusedOldestFirst() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        int a = allocator.acquire("a");
+        int b = allocator.acquire("b");
+        allocator.acquire("c");
+        assertEquals(b, allocator.release("b"));
+        assertEquals(a, allocator.release("a"));
+        assertEquals(b, allocator.acquire("d"));
+        assertEquals(a, allocator.acquire("e"));
+        assertEquals(RequestCodeAllocator.NONE, allocator.release("missing"));
+    }
+
+    @Test
+    public void restoreRebuildsFreeListFromGaps() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        allocator.restore("x", 3);
+        allocator.restore("y", 7);
+        allocator.restore("bad", RequestCodeAllocator.NONE);
+        allocator.finishRestore();
+        assertEquals(2, allocator.size());
+        assertEquals(3, allocator.get("x"));
+        assertEquals(RequestCodeAllocator.NONE, allocator.get("bad"));
+        List<Integer> fresh = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            fresh.add(allocator.acquire("new-" + i));
+        }
+        // Gaps 1, 2, 4, 5, 6 first, then the next unused code
+        assertEquals(List.of(1, 2, 4, 5, 6, 8), fresh);
+        assertNotEquals(allocator.get("x"), allocator.get("new-2"));
+    }
+
+    @Test
+    public void lookupCost() {
+        RequestCodeAllocator allocator = new RequestCodeAllocator();
+        List<String> ids = ids(IDS);
+        for (String id : ids) {
+            allocator.acquire(id);
+        }
+        String[] probes = ids.toArray(new String[0]);
+        long sum = 0;
+        // Warm up, then time
+        for (int round = 0; round < 5; round++) {
+            for (String id : probes) {
+                sum += allocator.get(id);
+            }
+        }
+        int rounds = 20;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (String id : probes) {
+                sum += allocator.get(id);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sum > 0);
+        System.out.printf("RequestCodeAllocator.get over %d ids: %.1f ns/lookup%n",
+            IDS, elapsed / (double) (rounds * IDS));
+    }
+}
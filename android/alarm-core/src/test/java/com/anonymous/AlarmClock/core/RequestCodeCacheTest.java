@@ -0,0 +1,58 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * RequestCodeCache reuse rules and LRU eviction
+ */
+public class RequestCodeCacheTest {
+    @Test
+    public void reusesOnlyWhileExtrasMatch() {
+        RequestCodeCache<String> cache = new RequestCodeCache<>(4);
+        cache.put(1, "a", "Wake up", 5, "intent-a");
+        assertEquals("intent-a", cache.get(1, "a", "Wake up", 5));
+
+        assertNull(cache.get(1, "a", "Other label", 5));
+        assertNull(cache.get(1, "b", "Wake up", 5));
+        assertNull(cache.get(1, "a", "Wake up", 0));
+        assertNull(cache.get(2, "a", "Wake up", 5));
+
+        cache.put(3, "c", null, 5, "intent-c");
+        assertEquals("intent-c", cache.get(3, "c", null, 5));
+        assertNull(cache.get(3, "c", "Now labelled", 5));
+    }
+
+    @Test
+    public void putReplacesTheEntryForACode() {
+        RequestCodeCache<String> cache = new RequestCodeCache<>(4);
+        cache.put(1, "a", "Old", 5, "old");
+        cache.put(1, "a", "New", 5, "new");
+        assertEquals(1, cache.size());
+        assertNull(cache.get(1, "a", "Old", 5));
+        assertEquals("new", cache.get(1, "a", "New", 5));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        RequestCodeCache<String> cache = new RequestCodeCache<>(2);
+        cache.put(1, "a", "A", 5, "intent-1");
+        cache.put(2, "b", "B", 5, "intent-2");
+        // Touch 1 so 2 is the eldest
+        cache.get(1, "a", "A", 5);
+        cache.put(3, "c", "C", 5, "intent-3");
+        assertEquals(2, cache.size());
+
+        assertEquals("intent-1", cache.get(1, "a", "A", 5));
+        assertEquals("intent-3", cache.get(3, "c", "C", 5));
+        assertNull(cache.get(2, "b", "B", 5));
+
+        cache.remove(1);
+        assertNull(cache.get(1, "a", "A", 5));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.capacity());
+    }
+}
@@ -0,0 +1,127 @@
+package com.anonymous.AlarmClock.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * VibrationPattern's compiler and built-in index lookups
+ */
+public class VibrationPatternTest {
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+
+    @Test
+    public void pulsesAndPausesCompileToBothWaveforms() {
+        VibrationPattern pattern = VibrationPattern.builder("p").pulse(100).pause(50).pulse(200, 128).repeat();
+        assertArrayEquals(new long[] {100, 50, 200}, pattern.amplitudeTimings);
+        assertArrayEquals(new int[] {255, 0, 128}, pattern.amplitudes);
+        // On/off form starts with an off slot and ignores strength
+        assertArrayEquals(new long[] {0, 100, 50, 200}, pattern.timings);
+        assertEquals(0, pattern.repeatIndex);
+        assertEquals(0, pattern.amplitudeRepeatIndex);
+    }
+
+    @Test
+    public void neighbouringStepsOfEqualStrengthMerge() {
+        VibrationPattern pattern = VibrationPattern.builder("p")
+            .pause(30).pause(20).pulse(100).pulse(50).pulse(40, 90).pause(10).once();
+        assertArrayEquals(new long[] {50, 150, 40, 10}, pattern.amplitudeTimings);
+        assertArrayEquals(new int[] {0, 255, 90, 0}, pattern.amplitudes);
+        // Leading pause is the initial off slot; both strengths are one on slot
+        assertArrayEquals(new long[] {50, 190, 10}, pattern.timings);
+        assertEquals(-1, pattern.repeatIndex);
+        assertEquals(-1, pattern.amplitudeRepeatIndex);
+    }
+
+    @Test
+    public void rampIsSplitIntoFixedSteps() {
+        VibrationPattern pattern = VibrationPattern.builder("ramp").ramp(1000, 0, 200).once();
+        long steps = 1000 / VibrationPattern.RAMP_STEP_MS;
+        assertEquals(steps, pattern.amplitudes.length);
+        assertEquals(1000, sum(pattern.amplitudeTimings));
+        assertEquals(0, pattern.amplitudes[0]);
+        assertEquals(200, pattern.amplitudes[pattern.amplitudes.length - 1]);
+        for (int i = 1; i < pattern.amplitudes.length; i++) {
+            assertTrue("ramp must rise", pattern.amplitudes[i] > pattern.amplitudes[i - 1]);
+        }
+        // First step is off, the rest is one on slot
+        assertArrayEquals(new long[] {VibrationPattern.RAMP_STEP_MS, 1000 - VibrationPattern.RAMP_STEP_MS},
+            pattern.timings);
+    }
+
+    @Test
+    public void rampShorterThanOneStepJumpsToTarget() {
+        VibrationPattern pattern = VibrationPattern.builder("short").ramp(20, 10, 200).once();
+        assertArrayEquals(new long[] {20}, pattern.amplitudeTimings);
+        assertArrayEquals(new int[] {200}, pattern.amplitudes);
+    }
+
+    @Test
+    public void rampDurationIsKeptWhenNotAMultipleOfTheStep() {
+        VibrationPattern pattern = VibrationPattern.builder("odd").ramp(1234, 255, 1).once();
+        assertEquals(1234, sum(pattern.amplitudeTimings));
+        assertEquals(1234, sum(pattern.timings));
+    }
+
+    @Test
+    public void bothWaveformsHaveTheSameLength() {
+        for (int i = 0; i < VibrationPattern.count(); i++) {
+            VibrationPattern pattern = VibrationPattern.get(i);
+            assertEquals(pattern.name, sum(pattern.amplitudeTimings), sum(pattern.timings));
+        }
+    }
+
+    @Test
+    public void emptyPatternIsEmpty() {
+        VibrationPattern none = VibrationPattern.get(VibrationPattern.NONE);
+        assertTrue(none.isEmpty());
+        assertEquals(0, none.timings.length);
+        assertEquals(-1, none.repeatIndex);
+    }
+
+    @Test
+    public void builtInIndicesMatchNames() {
+        assertEquals("default", VibrationPattern.get(VibrationPattern.DEFAULT).name);
+        assertEquals("escalating", VibrationPattern.get(VibrationPattern.ESCALATING).name);
+        assertEquals("heartbeat", VibrationPattern.get(VibrationPattern.HEARTBEAT).name);
+        assertEquals("snooze", VibrationPattern.get(VibrationPattern.SNOOZE).name);
+        assertEquals("none", VibrationPattern.get(VibrationPattern.NONE).name);
+        for (int i = 0; i < VibrationPattern.count(); i++) {
+            assertEquals(i, VibrationPattern.indexOf(VibrationPattern.get(i).name));
+        }
+    }
+
+    @Test
+    public void outOfRangeLookupsFallBackToDefault() {
+        VibrationPattern fallback = VibrationPattern.get(VibrationPattern.DEFAULT);
+        assertSame(fallback, VibrationPattern.get(-1));
+        assertSame(fallback, VibrationPattern.get(VibrationPattern.count()));
+        assertSame(fallback, VibrationPattern.get(Integer.MAX_VALUE));
+        assertEquals(VibrationPattern.DEFAULT, VibrationPattern.indexOf("unknown"));
+        assertEquals(VibrationPattern.DEFAULT, VibrationPattern.indexOf(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void amplitudeAboveMaximumIsRejected() {
+        VibrationPattern.builder("bad").pulse(100, VibrationPattern.MAX_AMPLITUDE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeRampAmplitudeIsRejected() {
+        VibrationPattern.builder("bad").ramp(100, -1, 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeDurationIsRejected() {
+        VibrationPattern.builder("bad").pause(-1);
+    }
+}
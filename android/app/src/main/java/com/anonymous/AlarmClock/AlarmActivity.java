@@ -1,46 +1,38 @@
 package com.anonymous.AlarmClock;
 
+import android.app.Activity;
 import android.app.KeyguardManager;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
-import android.media.MediaPlayer;
-import android.media.RingtoneManager;
-import android.net.Uri;
+import android.content.ServiceConnection;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.VibrationEffect;
-import android.os.Vibrator;
+import android.os.IBinder;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
-import android.widget.Button;
-import android.widget.TextView;
-
-import androidx.appcompat.app.AppCompatActivity;
-
-import java.io.IOException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 
 /**
  * Full-screen native alarm activity that shows when alarm triggers
- * This activity works over lock screen and provides dismiss/snooze functionality
+ * This activity works over lock screen and provides dismiss/snooze functionality.
+ * It is only a view: RingingService owns sound and vibration, so recreating
+ * or relaunching the activity never interrupts ringing. A plain Activity
+ * showing a single AlarmView keeps AppCompat and layout inflation off the
+ * path to the first frame
  */
-public class AlarmActivity extends AppCompatActivity {
+public class AlarmActivity extends Activity {
     private static final String TAG = "AlarmActivity";
-    private MediaPlayer mediaPlayer;
-    private Vibrator vibrator;
     private String alarmId;
     private String label;
+    private int snoozeMinutes;
+    private TriggerLatency latency;
+    private RingingService ringingService;
+    private boolean bound;
     
-    private TextView currentTimeText;
-    private TextView currentDateText;
-    private TextView alarmLabelText;
-    private TextView alarmTimeText;
-    private Button dismissButton;
-    private Button snoozeButton;
+    private AlarmView alarmView;
+    private LiveClock clock;
 
     @Override
     public void onBackPressed() {
@@ -50,6 +42,7 @@ public class AlarmActivity extends AppCompatActivity {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long createdAt = System.currentTimeMillis();
         super.onCreate(savedInstanceState);
 
         Log.d(TAG, "AlarmActivity created");
@@ -57,33 +50,119 @@ public class AlarmActivity extends AppCompatActivity {
         // Configure window to show over lock screen
         setupWindowFlags();
 
-        // Set the native layout
-        setContentView(R.layout.activity_alarm);
-
         // Get alarm data from intent
         Intent intent = getIntent();
         alarmId = intent.getStringExtra("alarmId");
         label = intent.getStringExtra("label");
+        snoozeMinutes = intent.getIntExtra("snoozeMinutes", 0);
 
         Log.d(TAG, "Alarm ID: " + alarmId + ", Label: " + label);
 
-        // Initialize UI components
+        // One view, built in code; nothing is inflated
+        long inflateStart = System.nanoTime();
         initializeViews();
-        
-        // Update time display
-        updateTimeDisplay();
+        setContentView(alarmView);
+        long inflateUs = (System.nanoTime() - inflateStart) / 1000;
+        Log.d(TAG, "Ringing view ready in " + inflateUs + " us");
+
+        latency = TriggerLatency.tryGetInstance(this);
+        if (latency != null) {
+            latency.recordActivityCreated(alarmId, createdAt);
+            latency.recordInflate(alarmId, inflateUs);
+        }
+        recordFirstFrame(createdAt);
+    }
 
-        // Start alarm sound and vibration
-        startAlarmSoundAndVibration();
+    @Override
+    protected void onStart() {
+        super.onStart();
+        clock.start();
+        // Sound lives in RingingService; bind only to follow it, never to create it
+        bound = bindService(new Intent(this, RingingService.class), connection, 0);
+    }
 
-        // Set up button listeners
-        setupButtonListeners();
+    @Override
+    protected void onStop() {
+        super.onStop();
+        clock.stop();
+        if (bound) {
+            if (ringingService != null) {
+                ringingService.setListener(null);
+                ringingService = null;
+            }
+            unbindService(connection);
+            bound = false;
+        }
     }
 
     @Override
-    protected void onDestroy() {
-        super.onDestroy();
-        stopAlarmSoundAndVibration();
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        // A second alarm rang while this one was showing
+        setIntent(intent);
+        showAlarm(intent.getStringExtra("alarmId"), intent.getStringExtra("label"), intent.getIntExtra("snoozeMinutes", 0));
+    }
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            ringingService = ((RingingService.LocalBinder) binder).getService();
+            ringingService.setListener(ringingListener);
+            if (ringingService.getAlarmId() != null) {
+                showAlarm(ringingService.getAlarmId(), ringingService.getLabel(), ringingService.getSnoozeMinutes());
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            ringingService = null;
+        }
+    };
+
+    private final RingingService.Listener ringingListener = new RingingService.Listener() {
+        @Override
+        public void onAlarmChanged(String newAlarmId, String newLabel, int newSnoozeMinutes) {
+            showAlarm(newAlarmId, newLabel, newSnoozeMinutes);
+        }
+
+        @Override
+        public void onRingingStopped() {
+            // Dismissed from the notification or by this activity
+            finish();
+        }
+    };
+
+    /**
+     * Record when the first frame is drawn and report the activity fully
+     * drawn to the system, then stop listening
+     */
+    private void recordFirstFrame(final long createdAt) {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean drawn;
+
+            @Override
+            public void onDraw() {
+                if (drawn) {
+                    return;
+                }
+                drawn = true;
+                long frameAt = System.currentTimeMillis();
+                Log.d(TAG, "First frame " + (frameAt - createdAt) + " ms after onCreate");
+                if (latency != null) {
+                    latency.recordFirstFrame(alarmId, frameAt);
+                }
+                reportFullyDrawn();
+                // Listeners can not be removed during dispatch
+                final ViewTreeObserver.OnDrawListener listener = this;
+                decorView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        decorView.getViewTreeObserver().removeOnDrawListener(listener);
+                    }
+                });
+            }
+        });
     }
 
     private void setupWindowFlags() {
@@ -107,151 +186,50 @@ public class AlarmActivity extends AppCompatActivity {
     }
 
     private void initializeViews() {
-        currentTimeText = findViewById(R.id.currentTimeText);
-        currentDateText = findViewById(R.id.currentDateText);
-        alarmLabelText = findViewById(R.id.alarmLabelText);
-        alarmTimeText = findViewById(R.id.alarmTimeText);
-        dismissButton = findViewById(R.id.dismissButton);
-        snoozeButton = findViewById(R.id.snoozeButton);
-
-        // Set alarm label
-        if (label != null && !label.isEmpty()) {
-            alarmLabelText.setText(label);
-        } else {
-            alarmLabelText.setText("Alarm");
-        }
-    }
-
-    private void updateTimeDisplay() {
-        // Update current time
-        Date now = new Date();
-        SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.getDefault());
-        SimpleDateFormat dateFormat = new SimpleDateFormat("EEEE, MMMM d", Locale.getDefault());
-        
-        currentTimeText.setText(timeFormat.format(now));
-        currentDateText.setText(dateFormat.format(now));
-        alarmTimeText.setText("Alarm is ringing");
-    }
-
-    private void setupButtonListeners() {
-        dismissButton.setOnClickListener(new View.OnClickListener() {
+        alarmView = new AlarmView(this);
+        alarmView.setListener(new AlarmView.Listener() {
             @Override
-            public void onClick(View v) {
+            public void onDismiss() {
                 handleDismiss();
             }
-        });
 
-        snoozeButton.setOnClickListener(new View.OnClickListener() {
             @Override
-            public void onClick(View v) {
+            public void onSnooze() {
                 handleSnooze();
             }
         });
-    }
 
-    private void handleDismiss() {
-        Log.d(TAG, "Alarm dismissed");
-        
-        // Stop alarm
-        stopAlarmSoundAndVibration();
-        
-        // Send dismiss event to React Native
-        sendEventToReactNative("ALARM_DISMISSED", alarmId);
-        
-        // Finish this activity
-        finish();
-    }
+        // Ticks while the activity is visible; the view draws the reused buffers
+        clock = new LiveClock(alarmView::setClock);
 
-    private void handleSnooze() {
-        Log.d(TAG, "Alarm snoozed");
-        
-        // Stop alarm
-        stopAlarmSoundAndVibration();
-        
-        // Send snooze event to React Native
-        sendEventToReactNative("ALARM_SNOOZED", alarmId);
-        
-        // Finish this activity
-        finish();
+        showAlarm(alarmId, label, snoozeMinutes);
     }
 
-    private void sendEventToReactNative(String eventType, String alarmId) {
-        // Create intent to send broadcast to React Native
-        Intent intent = new Intent("com.anonymous.AlarmClock.ALARM_ACTION");
-        intent.putExtra("eventType", eventType);
-        intent.putExtra("alarmId", alarmId);
-        sendBroadcast(intent);
-        
-        Log.d(TAG, "Sent event to React Native: " + eventType + " for alarm " + alarmId);
+    private void showAlarm(String newAlarmId, String newLabel, int newSnoozeMinutes) {
+        alarmId = newAlarmId;
+        label = newLabel;
+        snoozeMinutes = newSnoozeMinutes;
+        alarmView.setLabel(label);
+        alarmView.setSnoozeMinutes(snoozeMinutes);
     }
 
-    private void startAlarmSoundAndVibration() {
-        // Start vibration
-        vibrator = (Vibrator) getSystemService(Context.VIBRATOR_SERVICE);
-        if (vibrator != null && vibrator.hasVibrator()) {
-            long[] pattern = {0, 500, 500, 500, 500};
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                vibrator.vibrate(VibrationEffect.createWaveform(pattern, 0));
-            } else {
-                vibrator.vibrate(pattern, 0);
-            }
-        }
+    private void handleDismiss() {
+        Log.d(TAG, "Alarm dismissed");
 
-        // Start alarm sound
-        try {
-            mediaPlayer = new MediaPlayer();
-            
-            // Try to load custom alarm sound
-            int soundResId = getResources().getIdentifier("alarm", "raw", getPackageName());
-            Uri soundUri;
-            
-            if (soundResId != 0) {
-                soundUri = Uri.parse("android.resource://" + getPackageName() + "/" + soundResId);
-            } else {
-                // Fallback to default alarm sound
-                soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM);
-                if (soundUri == null) {
-                    soundUri = RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION);
-                }
-            }
+        // Stop ringing; the service reports the dismiss to React Native
+        RingingService.stop(this, RingingService.EVENT_DISMISSED);
 
-            mediaPlayer.setDataSource(this, soundUri);
-            
-            AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                .setUsage(AudioAttributes.USAGE_ALARM)
-                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                .build();
-            mediaPlayer.setAudioAttributes(audioAttributes);
-            
-            mediaPlayer.setLooping(true);
-            mediaPlayer.setVolume(1.0f, 1.0f);
-            mediaPlayer.prepare();
-            mediaPlayer.start();
-
-            Log.d(TAG, "Alarm sound started");
-        } catch (IOException e) {
-            Log.e(TAG, "Error playing alarm sound", e);
-        }
+        // Finish this activity
+        finish();
     }
 
-    private void stopAlarmSoundAndVibration() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) {
-                    mediaPlayer.stop();
-                }
-                mediaPlayer.release();
-                mediaPlayer = null;
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping media player", e);
-            }
-        }
+    private void handleSnooze() {
+        Log.d(TAG, "Alarm snoozed for " + snoozeMinutes + " min");
 
-        if (vibrator != null) {
-            vibrator.cancel();
-            vibrator = null;
-        }
+        // Stop ringing; the service schedules the snooze, then reports it to React Native
+        RingingService.stop(this, RingingService.EVENT_SNOOZED);
 
-        Log.d(TAG, "Alarm sound and vibration stopped");
+        // Finish this activity
+        finish();
     }
 }
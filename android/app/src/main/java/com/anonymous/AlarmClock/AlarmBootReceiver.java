@@ -3,29 +3,48 @@ package com.anonymous.AlarmClock;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 
 /**
  * Broadcast receiver to restore alarms after device reboot
+ * Alarms are re-armed natively from the scheduler's device-protected store,
+ * so they ring even before the first unlock and without starting React Native
  */
 public class AlarmBootReceiver extends BroadcastReceiver {
     private static final String TAG = "AlarmBootReceiver";
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
-            Log.d(TAG, "Device booted - alarms should be restored by React Native on app start");
-            
-            // Note: We don't restore alarms here directly because:
-            // 1. Alarm data is stored in SQLite by React Native
-            // 2. React Native will restore alarms when the app starts
-            // 3. This receiver just ensures we can respond to boot events
-            
-            // If you want to restore alarms immediately after boot without waiting
-            // for user to open the app, you would need to:
-            // 1. Store alarm data in SharedPreferences (accessible from Java)
-            // 2. Re-schedule all alarms here
-            // For now, alarms will be restored when user opens the app
+        String action = intent.getAction();
+        if (!Intent.ACTION_BOOT_COMPLETED.equals(action)
+                && !Intent.ACTION_LOCKED_BOOT_COMPLETED.equals(action)) {
+            return;
         }
+
+        Log.d(TAG, "Device booted (" + action + ") - restoring alarms");
+
+        // Loading the store can touch disk; keep it off the main thread
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                try {
+                    int pending = AlarmScheduler.getInstance(appContext).restore(System.currentTimeMillis());
+                    Log.d(TAG, "Restored " + pending + " alarms in "
+                        + (SystemClock.elapsedRealtime() - start) + " ms");
+                    if (pending > 0) {
+                        // Have the decoded sound ready before the first alarm rings
+                        PcmSound.decodeInBackground(appContext, R.raw.alarm);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error restoring alarms", e);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        }, "AlarmBootRestore").start();
     }
 }
@@ -61,6 +61,13 @@ public class AlarmEventModule extends ReactContextBaseJavaModule {
                 WritableMap params = Arguments.createMap();
                 params.putString("eventType", eventType);
                 params.putString("alarmId", alarmId);
+                // Present when native code has already scheduled the snooze
+                if (intent.hasExtra("snoozeUntil")) {
+                    params.putDouble("snoozeUntil", intent.getLongExtra("snoozeUntil", 0));
+                }
+                if (intent.hasExtra("snoozeCount")) {
+                    params.putInt("snoozeCount", intent.getIntExtra("snoozeCount", 0));
+                }
                 
                 sendEvent("AlarmEvent", params);
             }
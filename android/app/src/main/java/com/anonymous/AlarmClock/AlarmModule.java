@@ -1,18 +1,30 @@
 package com.anonymous.AlarmClock;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
-import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
 import android.provider.Settings;
 import android.util.Log;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.anonymous.AlarmClock.core.AlarmEngine;
+import com.anonymous.AlarmClock.core.AlarmRecurrence;
+import com.anonymous.AlarmClock.core.LatencyHistogram;
+import com.anonymous.AlarmClock.core.RequestCodeAllocator;
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+import com.anonymous.AlarmClock.core.VibrationPattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * React Native module for scheduling exact alarms with full-screen intent
@@ -21,10 +33,12 @@ import com.facebook.react.bridge.ReadableMap;
 public class AlarmModule extends ReactContextBaseJavaModule {
     private static final String TAG = "AlarmModule";
     private final ReactApplicationContext reactContext;
+    private final AlarmOperationQueue queue;
 
     public AlarmModule(ReactApplicationContext reactContext) {
         super(reactContext);
         this.reactContext = reactContext;
+        this.queue = AlarmOperationQueue.getInstance(reactContext);
     }
 
     @Override
@@ -35,12 +49,8 @@ public class AlarmModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void canScheduleExactAlarms(Promise promise) {
         try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                AlarmManager alarmManager = (AlarmManager) reactContext.getSystemService(Context.ALARM_SERVICE);
-                promise.resolve(alarmManager.canScheduleExactAlarms());
-            } else {
-                promise.resolve(true); // On older versions, permission is granted by default
-            }
+            // On older versions, permission is granted by default
+            promise.resolve(AlarmScheduler.getInstance(reactContext).canScheduleExactAlarms());
         } catch (Exception e) {
             Log.e(TAG, "Error checking exact alarm permission", e);
             promise.reject("ERROR", e.getMessage());
@@ -50,14 +60,11 @@ public class AlarmModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void requestExactAlarmPermission(Promise promise) {
         try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                AlarmManager alarmManager = (AlarmManager) reactContext.getSystemService(Context.ALARM_SERVICE);
-                if (!alarmManager.canScheduleExactAlarms()) {
-                    // Open settings to request permission
-                    Intent intent = new Intent(Settings.ACTION_REQUEST_SCHEDULE_EXACT_ALARM);
-                    intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-                    reactContext.startActivity(intent);
-                }
+            if (!AlarmScheduler.getInstance(reactContext).canScheduleExactAlarms()) {
+                // Open settings to request permission
+                Intent intent = new Intent(Settings.ACTION_REQUEST_SCHEDULE_EXACT_ALARM);
+                intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                reactContext.startActivity(intent);
             }
             promise.resolve(null);
         } catch (Exception e) {
@@ -66,98 +73,393 @@ public class AlarmModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Queued and coalesced with other single-alarm calls for the same id;
+     * resolves once the final state of the alarm has been applied. An alarm
+     * already armed with the same trigger and payload is left untouched
+     */
     @ReactMethod
     public void scheduleAlarm(ReadableMap alarmData, Promise promise) {
         try {
-            String alarmId = alarmData.getString("id");
-            String label = alarmData.hasKey("label") ? alarmData.getString("label") : "Alarm";
-            double triggerTimeDouble = alarmData.getDouble("triggerTime");
-            long triggerTime = (long) triggerTimeDouble;
-            boolean isRepeating = alarmData.hasKey("isRepeating") && alarmData.getBoolean("isRepeating");
-
-            Log.d(TAG, "Scheduling alarm: " + alarmId + " at " + triggerTime);
-
-            AlarmManager alarmManager = (AlarmManager) reactContext.getSystemService(Context.ALARM_SERVICE);
-
-            // Create intent for the broadcast receiver
-            Intent intent = new Intent(reactContext, AlarmReceiver.class);
-            intent.putExtra("alarmId", alarmId);
-            intent.putExtra("label", label);
-            intent.putExtra("isRepeating", isRepeating);
-            
-            // Use unique request code based on alarm ID hash
-            int requestCode = alarmId.hashCode();
-
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                reactContext,
-                requestCode,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            // Schedule the alarm
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                // Use setExactAndAllowWhileIdle for exact timing even in Doze mode
-                alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerTime,
-                    pendingIntent
-                );
-            } else {
-                alarmManager.setExact(
-                    AlarmManager.RTC_WAKEUP,
-                    triggerTime,
-                    pendingIntent
-                );
-            }
+            ScheduledAlarm alarm = readAlarm(alarmData);
 
-            Log.d(TAG, "Alarm scheduled successfully: " + alarmId);
-            promise.resolve(null);
+            Log.d(TAG, "Scheduling alarm: " + alarm.id + " at " + alarm.triggerTime);
+
+            // Only the earliest pending alarm is registered with AlarmManager
+            queue.schedule(alarm, promise);
         } catch (Exception e) {
             Log.e(TAG, "Error scheduling alarm", e);
             promise.reject("ERROR", "Failed to schedule alarm: " + e.getMessage());
         }
     }
 
+    /**
+     * Schedule many alarms in one native pass
+     * Resolves with one { id, success, error? } entry per input item, once the
+     * batch has been applied; an alarm that could not be stored fails alone
+     */
     @ReactMethod
-    public void cancelAlarm(String alarmId, Promise promise) {
-        try {
-            Log.d(TAG, "Canceling alarm: " + alarmId);
+    public void scheduleAlarms(ReadableArray alarms, Promise promise) {
+        int count = alarms.size();
+        Log.d(TAG, "Scheduling " + count + " alarms");
 
-            AlarmManager alarmManager = (AlarmManager) reactContext.getSystemService(Context.ALARM_SERVICE);
+        List<ScheduledAlarm> valid = new ArrayList<>(count);
+        String[] ids = new String[count];
+        // Index into valid, or -1 with the parse error in errors
+        int[] slots = new int[count];
+        String[] errors = new String[count];
+        for (int i = 0; i < count; i++) {
+            ReadableMap alarmData = alarms.getMap(i);
+            ids[i] = alarmData != null && alarmData.hasKey("id") ? alarmData.getString("id") : null;
+            try {
+                valid.add(readAlarm(alarmData));
+                slots[i] = valid.size() - 1;
+            } catch (Exception e) {
+                Log.w(TAG, "Skipping invalid alarm at index " + i, e);
+                slots[i] = -1;
+                errors[i] = e.getMessage();
+            }
+        }
 
-            Intent intent = new Intent(reactContext, AlarmReceiver.class);
-            int requestCode = alarmId.hashCode();
+        queue.executeUpdate(() -> {
+            try {
+                Exception[] failures = new Exception[valid.size()];
+                queue.scheduler().apply(Collections.<String>emptyList(), valid, failures);
 
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                reactContext,
-                requestCode,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
+                int scheduled = 0;
+                WritableArray results = Arguments.createArray();
+                for (int i = 0; i < count; i++) {
+                    if (slots[i] < 0) {
+                        results.pushMap(createResult(ids[i], false, errors[i]));
+                        continue;
+                    }
+                    Exception failure = failures[slots[i]];
+                    if (failure != null) {
+                        Log.e(TAG, "Error scheduling alarm " + ids[i], failure);
+                        results.pushMap(createResult(ids[i], false, failure.getMessage()));
+                    } else {
+                        results.pushMap(createResult(ids[i], true, null));
+                        scheduled++;
+                    }
+                }
 
-            alarmManager.cancel(pendingIntent);
-            pendingIntent.cancel();
+                Log.d(TAG, "Scheduled " + scheduled + " of " + count + " alarms");
+                promise.resolve(results);
+            } catch (Exception e) {
+                Log.e(TAG, "Error scheduling alarms", e);
+                promise.reject("ERROR", "Failed to schedule alarms: " + e.getMessage());
+            }
+        });
+    }
 
-            Log.d(TAG, "Alarm canceled successfully: " + alarmId);
-            promise.resolve(null);
+    /**
+     * Make the native schedule match the given complete set of alarms
+     * Only the difference is applied; resolves with { added, updated, removed, unchanged }.
+     * Rejects without changing anything if any entry is invalid, since a
+     * dropped entry would otherwise be removed
+     */
+    @ReactMethod
+    public void reconcileAlarms(ReadableArray alarms, Promise promise) {
+        List<ScheduledAlarm> desired = new ArrayList<>(alarms.size());
+        try {
+            for (int i = 0; i < alarms.size(); i++) {
+                desired.add(readAlarm(alarms.getMap(i)));
+            }
         } catch (Exception e) {
-            Log.e(TAG, "Error canceling alarm", e);
-            promise.reject("ERROR", "Failed to cancel alarm: " + e.getMessage());
+            Log.e(TAG, "Error reading alarms to reconcile", e);
+            promise.reject("ERROR", "Failed to reconcile alarms: " + e.getMessage());
+            return;
         }
+        Log.d(TAG, "Reconciling " + desired.size() + " alarms");
+
+        queue.executeUpdate(() -> {
+            try {
+                AlarmEngine.Reconciliation diff = queue.scheduler().reconcile(desired);
+
+                WritableMap result = Arguments.createMap();
+                result.putInt("added", diff.added);
+                result.putInt("updated", diff.updated);
+                result.putInt("removed", diff.removed);
+                result.putInt("unchanged", diff.unchanged);
+                promise.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reconciling alarms", e);
+                promise.reject("ERROR", "Failed to reconcile alarms: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Move a scheduled alarm to a new trigger time
+     * Resolves false if the alarm is not scheduled
+     */
+    @ReactMethod
+    public void rescheduleAlarm(String alarmId, double triggerTime, Promise promise) {
+        Log.d(TAG, "Rescheduling alarm: " + alarmId + " to " + (long) triggerTime);
+
+        queue.executeUpdate(() -> {
+            try {
+                boolean moved = queue.scheduler().reschedule(alarmId, (long) triggerTime);
+                promise.resolve(moved);
+            } catch (Exception e) {
+                Log.e(TAG, "Error rescheduling alarm", e);
+                promise.reject("ERROR", "Failed to reschedule alarm: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Queued and coalesced like scheduleAlarm; a schedule followed by a cancel
+     * inside the window never reaches AlarmManager
+     */
+    @ReactMethod
+    public void cancelAlarm(String alarmId, Promise promise) {
+        Log.d(TAG, "Canceling alarm: " + alarmId);
+
+        queue.cancel(alarmId, promise);
+    }
+
+    /**
+     * Cancel many alarms in one native pass
+     * Resolves with one { id, success } entry per id; success is false if it was not scheduled
+     */
+    @ReactMethod
+    public void cancelAlarms(ReadableArray alarmIds, Promise promise) {
+        int count = alarmIds.size();
+        Log.d(TAG, "Canceling " + count + " alarms");
+
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ids.add(alarmIds.getString(i));
+        }
+
+        queue.executeUpdate(() -> {
+            try {
+                boolean[] removed = queue.scheduler().cancelAll(ids);
+
+                WritableArray results = Arguments.createArray();
+                for (int i = 0; i < count; i++) {
+                    results.pushMap(createResult(ids.get(i), removed[i], null));
+                }
+                promise.resolve(results);
+            } catch (Exception e) {
+                Log.e(TAG, "Error canceling alarms", e);
+                promise.reject("ERROR", "Failed to cancel alarms: " + e.getMessage());
+            }
+        });
     }
 
     @ReactMethod
     public void cancelAllAlarms(Promise promise) {
+        Log.d(TAG, "Canceling all alarms");
+
+        queue.executeUpdate(() -> {
+            try {
+                int count = queue.scheduler().clear();
+
+                Log.d(TAG, "All alarms canceled: " + count);
+                promise.resolve(null);
+            } catch (Exception e) {
+                Log.e(TAG, "Error canceling all alarms", e);
+                promise.reject("ERROR", "Failed to cancel all alarms: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Read one alarm from the native store; resolves null if it is not scheduled
+     */
+    @ReactMethod
+    public void getScheduledAlarm(String alarmId, Promise promise) {
+        // Queued so reads observe every earlier write
+        queue.execute(() -> {
+            try {
+                ScheduledAlarm alarm = queue.scheduler().get(alarmId);
+                promise.resolve(alarm != null ? writeAlarm(alarm) : null);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading alarm", e);
+                promise.reject("ERROR", "Failed to read alarm: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Read every alarm in the native store
+     */
+    @ReactMethod
+    public void getScheduledAlarms(Promise promise) {
+        queue.execute(() -> {
+            try {
+                WritableArray alarms = Arguments.createArray();
+                for (ScheduledAlarm alarm : queue.scheduler().getAll()) {
+                    alarms.pushMap(writeAlarm(alarm));
+                }
+                promise.resolve(alarms);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading alarms", e);
+                promise.reject("ERROR", "Failed to read alarms: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Scheduling counters: ops submitted, ops left after coalescing, batches
+     * applied, schedules skipped as unchanged and AlarmManager calls issued.
+     * All count this process since it started
+     */
+    @ReactMethod
+    public void getSchedulingStats(Promise promise) {
+        queue.execute(() -> {
+            try {
+                WritableMap stats = Arguments.createMap();
+                stats.putDouble("submitted", queue.getSubmitted());
+                stats.putDouble("applied", queue.getApplied());
+                stats.putDouble("batches", queue.getBatches());
+                stats.putDouble("skipped", queue.scheduler().getSkippedCalls());
+                stats.putDouble("binderCalls", queue.scheduler().getBinderCalls());
+                promise.resolve(stats);
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading scheduling stats", e);
+                promise.reject("ERROR", "Failed to read scheduling stats: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fire a pre-warm trigger this many seconds before every alarm, starting
+     * the alarm process and loading its sound and layout ahead of time; 0 disables it
+     */
+    @ReactMethod
+    public void setPrewarmLeadSeconds(double seconds, Promise promise) {
+        if (seconds < 0) {
+            promise.reject("ERROR", "Pre-warm lead must not be negative");
+            return;
+        }
+        queue.execute(() -> {
+            try {
+                queue.scheduler().setPrewarmLead((long) (seconds * 1000));
+                promise.resolve(null);
+            } catch (Exception e) {
+                Log.e(TAG, "Error setting pre-warm lead", e);
+                promise.reject("ERROR", "Failed to set pre-warm lead: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Trigger latency histograms over the most recent alarms, in ms
+     * Resolves { stageName: { count, min, mean, p50, p90, p99, max } } for the
+     * stages delivery, receiver, launch, firstFrame, firstAudio, triggerToFrame
+     * and triggerToAudio, with the last split into warm/cold by pre-warming,
+     * firstAudio split by the sound source that played (firstAudioPcm, Raw,
+     * Alarm, Notification, Tone) and the time spent on each source tried
+     * (soundPcm, soundRaw, soundAlarm, soundNotification, soundTone), and
+     * inflateUs, the microseconds spent building the ringing view
+     */
+    @ReactMethod
+    public void getTriggerLatencyStats(Promise promise) {
         try {
-            Log.d(TAG, "Canceling all alarms");
-            // This is a placeholder - in production, you'd want to track all alarm IDs
-            // For now, we'll handle cancellation through individual cancelAlarm calls
-            Log.d(TAG, "All alarms canceled");
-            promise.resolve(null);
+            WritableMap stats = Arguments.createMap();
+            Map<String, LatencyHistogram> histograms = TriggerLatency.getInstance(reactContext).getHistograms();
+            for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                WritableMap stage = Arguments.createMap();
+                stage.putDouble("count", histogram.getCount());
+                stage.putDouble("min", histogram.getMin());
+                stage.putDouble("mean", histogram.getMean());
+                stage.putDouble("p50", histogram.getValueAtPercentile(50));
+                stage.putDouble("p90", histogram.getValueAtPercentile(90));
+                stage.putDouble("p99", histogram.getValueAtPercentile(99));
+                stage.putDouble("max", histogram.getMax());
+                stats.putMap(entry.getKey(), stage);
+            }
+            promise.resolve(stats);
         } catch (Exception e) {
-            Log.e(TAG, "Error canceling all alarms", e);
-            promise.reject("ERROR", "Failed to cancel all alarms: " + e.getMessage());
+            Log.e(TAG, "Error reading trigger latency", e);
+            promise.reject("ERROR", "Failed to read trigger latency: " + e.getMessage());
+        }
+    }
+
+    private static ScheduledAlarm readAlarm(ReadableMap alarmData) {
+        if (alarmData == null || !alarmData.hasKey("id") || !alarmData.hasKey("triggerTime")) {
+            throw new IllegalArgumentException("Alarm requires id and triggerTime");
+        }
+        String alarmId = alarmData.getString("id");
+        String label = alarmData.hasKey("label") ? alarmData.getString("label") : "Alarm";
+        long triggerTime = (long) alarmData.getDouble("triggerTime");
+        boolean isRepeating = alarmData.hasKey("isRepeating") && alarmData.getBoolean("isRepeating");
+
+        // Optional schedule that lets AlarmReceiver re-arm repeating alarms natively
+        int hour = alarmData.hasKey("hour") ? alarmData.getInt("hour") : ScheduledAlarm.NO_TIME;
+        int minute = alarmData.hasKey("minute") ? alarmData.getInt("minute") : ScheduledAlarm.NO_TIME;
+        if (alarmData.hasKey("hour") && (hour < 0 || hour > 23)) {
+            throw new IllegalArgumentException("hour must be 0..23");
+        }
+        if (alarmData.hasKey("minute") && (minute < 0 || minute > 59)) {
+            throw new IllegalArgumentException("minute must be 0..59");
+        }
+        int repeatDays = 0;
+        if (alarmData.hasKey("repeatDays")) {
+            ReadableArray days = alarmData.getArray("repeatDays");
+            for (int i = 0; days != null && i < days.size(); i++) {
+                repeatDays |= AlarmRecurrence.dayBit(days.getString(i));
+            }
+        }
+        int vibration = VibrationPattern.indexOf(
+            alarmData.hasKey("vibrationPattern") ? alarmData.getString("vibrationPattern") : null);
+        // Snooze settings; 0 or absent means the default length and no limit
+        int snoozeMinutes = alarmData.hasKey("snoozeMinutes") ? alarmData.getInt("snoozeMinutes") : 0;
+        int maxSnoozes = alarmData.hasKey("maxSnoozes") ? alarmData.getInt("maxSnoozes") : ScheduledAlarm.UNLIMITED_SNOOZES;
+        if (snoozeMinutes < 0 || snoozeMinutes > ScheduledAlarm.MAX_SNOOZE_MINUTES) {
+            throw new IllegalArgumentException("snoozeMinutes must be 0.." + ScheduledAlarm.MAX_SNOOZE_MINUTES);
+        }
+        if (maxSnoozes < 0 || maxSnoozes > ScheduledAlarm.MAX_SNOOZE_LIMIT) {
+            throw new IllegalArgumentException("maxSnoozes must be 0.." + ScheduledAlarm.MAX_SNOOZE_LIMIT);
+        }
+        // Snoozes taken including this one, on snoozes scheduled from JS
+        int snoozeCount = alarmData.hasKey("snoozeCount") ? alarmData.getInt("snoozeCount") : 0;
+        if (snoozeCount < 0 || snoozeCount > ScheduledAlarm.MAX_SNOOZE_LIMIT) {
+            throw new IllegalArgumentException("snoozeCount must be 0.." + ScheduledAlarm.MAX_SNOOZE_LIMIT);
+        }
+        // Same limit AlarmScheduler.snooze applies through canSnooze()
+        if (maxSnoozes != ScheduledAlarm.UNLIMITED_SNOOZES && snoozeCount > maxSnoozes) {
+            throw new IllegalArgumentException("Snooze limit of " + maxSnoozes + " reached");
+        }
+        return new ScheduledAlarm(alarmId, label, triggerTime, isRepeating, hour, minute, repeatDays,
+            RequestCodeAllocator.NONE, vibration, snoozeMinutes, maxSnoozes, snoozeCount);
+    }
+
+    private static WritableMap writeAlarm(ScheduledAlarm alarm) {
+        WritableMap map = Arguments.createMap();
+        map.putString("id", alarm.id);
+        map.putString("label", alarm.label);
+        map.putDouble("triggerTime", alarm.triggerTime);
+        map.putBoolean("isRepeating", alarm.isRepeating);
+        if (alarm.hour != ScheduledAlarm.NO_TIME && alarm.minute != ScheduledAlarm.NO_TIME) {
+            map.putInt("hour", alarm.hour);
+            map.putInt("minute", alarm.minute);
+        }
+        WritableArray repeatDays = Arguments.createArray();
+        for (int i = 0; i < AlarmRecurrence.DAY_NAMES.length; i++) {
+            if ((alarm.repeatDays & (1 << i)) != 0) {
+                repeatDays.pushString(AlarmRecurrence.DAY_NAMES[i]);
+            }
+        }
+        map.putArray("repeatDays", repeatDays);
+        map.putString("vibrationPattern", VibrationPattern.get(alarm.vibration).name);
+        map.putInt("snoozeMinutes", alarm.snoozeLengthMinutes());
+        map.putInt("maxSnoozes", alarm.maxSnoozes);
+        map.putInt("snoozeCount", alarm.snoozeCount);
+        return map;
+    }
+
+    private static WritableMap createResult(String alarmId, boolean success, String error) {
+        WritableMap result = Arguments.createMap();
+        result.putString("id", alarmId);
+        result.putBoolean("success", success);
+        if (error != null) {
+            result.putString("error", error);
         }
+        return result;
     }
 }
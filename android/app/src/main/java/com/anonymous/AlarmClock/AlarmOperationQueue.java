@@ -0,0 +1,210 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes AlarmModule operations on one background thread
+ * Single-alarm schedule/cancel calls wait a short window and are coalesced by
+ * id, so a burst of toggles collapses to its final state and reaches
+ * AlarmManager once. Every other task runs as a barrier: pending ops are
+ * applied first, keeping calls in submission order. Each caller's promise is
+ * still settled, with the outcome of the final state of its alarm
+ */
+final class AlarmOperationQueue {
+    private static final String TAG = "AlarmOperationQueue";
+
+    // Long enough to absorb a burst of taps, short enough to go unnoticed
+    private static final long COALESCE_WINDOW_MS = 30;
+
+    private static AlarmOperationQueue instance;
+
+    private final Context context;
+    private final ScheduledExecutorService executor;
+    private final LinkedHashMap<String, PendingOp> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private long submitted;
+    private long applied;
+    private long batches;
+
+    static synchronized AlarmOperationQueue getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmOperationQueue(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmOperationQueue(Context context) {
+        this.context = context;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "AlarmScheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue an add or replace; resolves null once the coalesced state is applied
+     */
+    void schedule(ScheduledAlarm alarm, Promise promise) {
+        enqueue(alarm.id, alarm, promise);
+    }
+
+    /**
+     * Queue a cancel; resolves null once the coalesced state is applied
+     */
+    void cancel(String alarmId, Promise promise) {
+        enqueue(alarmId, null, promise);
+    }
+
+    /**
+     * Run a task that changes alarms on the scheduler thread after every
+     * pending op has been applied; counted as one submitted op
+     */
+    void executeUpdate(Runnable task) {
+        synchronized (this) {
+            submitted++;
+        }
+        execute(task);
+    }
+
+    /**
+     * Run a task on the scheduler thread after every pending op has been
+     * applied; for lookups, stats and settings, which are not counted
+     */
+    void execute(Runnable task) {
+        executor.execute(() -> {
+            flush();
+            task.run();
+        });
+    }
+
+    /**
+     * Scheduler on this queue's thread; only call from tasks passed to
+     * execute() or executeUpdate()
+     */
+    AlarmScheduler scheduler() {
+        return AlarmScheduler.getInstance(context);
+    }
+
+    /**
+     * Alarm-changing calls received, before coalescing
+     */
+    synchronized long getSubmitted() {
+        return submitted;
+    }
+
+    /**
+     * Operations that reached the scheduler after coalescing
+     */
+    synchronized long getApplied() {
+        return applied;
+    }
+
+    synchronized long getBatches() {
+        return batches;
+    }
+
+    private synchronized void enqueue(String alarmId, ScheduledAlarm alarm, Promise promise) {
+        submitted++;
+        PendingOp op = pending.get(alarmId);
+        if (op == null) {
+            op = new PendingOp();
+            pending.put(alarmId, op);
+        }
+        // The latest call wins; earlier callers settle with its outcome
+        op.alarm = alarm;
+        op.promises.add(promise);
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.schedule(this::flush, COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Apply every pending op in one scheduler batch; runs on the executor thread
+     */
+    private void flush() {
+        List<String> ids;
+        List<PendingOp> ops;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            ids = new ArrayList<>(pending.keySet());
+            ops = new ArrayList<>(pending.values());
+            pending.clear();
+            applied += ops.size();
+            batches++;
+        }
+
+        List<String> cancels = new ArrayList<>();
+        List<ScheduledAlarm> schedules = new ArrayList<>();
+        for (int i = 0; i < ops.size(); i++) {
+            ScheduledAlarm alarm = ops.get(i).alarm;
+            if (alarm == null) {
+                cancels.add(ids.get(i));
+            } else {
+                schedules.add(alarm);
+            }
+        }
+
+        Exception[] failures = new Exception[schedules.size()];
+        try {
+            scheduler().apply(cancels, schedules, failures);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Error applying " + ops.size() + " alarm operations", e);
+            for (PendingOp op : ops) {
+                op.reject("Failed to update alarm: " + e.getMessage());
+            }
+            return;
+        }
+
+        int scheduleIndex = 0;
+        for (PendingOp op : ops) {
+            if (op.alarm == null) {
+                op.resolve();
+                continue;
+            }
+            Exception failure = failures[scheduleIndex++];
+            if (failure != null) {
+                Log.e(TAG, "Error scheduling alarm " + op.alarm.id, failure);
+                op.reject("Failed to schedule alarm: " + failure.getMessage());
+            } else {
+                op.resolve();
+            }
+        }
+        Log.d(TAG, "Applied " + ops.size() + " alarm operations");
+    }
+
+    private static final class PendingOp {
+        // Final state for the id: the alarm to schedule, or null to cancel
+        ScheduledAlarm alarm;
+        final List<Promise> promises = new ArrayList<>(2);
+
+        void resolve() {
+            for (Promise promise : promises) {
+                promise.resolve(null);
+            }
+        }
+
+        void reject(String message) {
+            for (Promise promise : promises) {
+                promise.reject("ERROR", message);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.media.MediaPlayer;
+import android.os.PowerManager;
+import android.util.Log;
+
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Warms the ":alarm" process shortly before the next alarm rings
+ * The pre-warm trigger starts the process, takes a wake lock until just past
+ * the alarm, builds the ringing AlarmView once off screen so its classes,
+ * typefaces and paints are loaded, and loads the alarm sound - the decoded
+ * PCM cache, or a prepared MediaPlayer when that is unavailable. When the
+ * alarm fires in the same process, RingingService only has to start playback
+ * while the activity shows the UI
+ */
+final class AlarmPrewarm {
+    private static final String TAG = "AlarmPrewarm";
+
+    // Keep the CPU up from the pre-warm until shortly after the alarm is due
+    private static final long WAKE_LOCK_SLACK_MS = 10000;
+
+    private static String warmedId;
+    private static MediaPlayer player;
+    private static PowerManager.WakeLock wakeLock;
+
+    private AlarmPrewarm() {
+    }
+
+    /**
+     * Handle the pre-warm trigger; runs on AlarmReceiver's worker thread
+     */
+    static void warm(Context context, long now) {
+        ScheduledAlarm next = AlarmScheduler.getInstance(context).peek();
+        if (next == null || next.triggerTime <= now) {
+            return;
+        }
+        acquireWakeLock(context, next.triggerTime - now + WAKE_LOCK_SLACK_MS);
+
+        try {
+            // The view is dropped; the activity builds its own
+            new AlarmView(context);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Could not pre-build alarm view", e);
+        }
+
+        // Decode (or map) the PCM cache; MediaPlayer is only the fallback
+        MediaPlayer prepared = null;
+        PcmSound sound = PcmSound.decode(context, R.raw.alarm);
+        if (sound != null) {
+            // Fault the samples in so the first write does not wait on disk
+            if (sound.pcm instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) sound.pcm).load();
+            }
+        } else {
+            try {
+                // Only the bundled sound; the ringing pipeline handles fallbacks
+                prepared = AlarmSoundPipeline.newPlayer(context, AlarmSoundPipeline.rawUri(context));
+                prepared.prepare();
+            } catch (IOException | RuntimeException e) {
+                if (prepared != null) {
+                    prepared.release();
+                    prepared = null;
+                }
+                Log.e(TAG, "Could not pre-load alarm sound", e);
+            }
+        }
+
+        synchronized (AlarmPrewarm.class) {
+            releasePlayer();
+            player = prepared;
+            warmedId = next.id;
+        }
+        Log.d(TAG, "Warmed for " + next.id + ", " + (next.triggerTime - now) + " ms ahead");
+    }
+
+    /**
+     * Whether this process was pre-warmed for the alarm
+     */
+    static synchronized boolean isWarm(String alarmId) {
+        return alarmId != null && alarmId.equals(warmedId);
+    }
+
+    /**
+     * Hand the prepared player to the ringing alarm and drop the wake lock;
+     * null when the process was not warmed for it
+     */
+    static synchronized MediaPlayer takePlayer(String alarmId) {
+        if (!isWarm(alarmId)) {
+            return null;
+        }
+        MediaPlayer prepared = player;
+        player = null;
+        warmedId = null;
+        if (wakeLock != null && wakeLock.isHeld()) {
+            wakeLock.release();
+        }
+        return prepared;
+    }
+
+    private static synchronized void acquireWakeLock(Context context, long timeoutMs) {
+        if (wakeLock == null) {
+            PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+            wakeLock = powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "AlarmClock:prewarm");
+            wakeLock.setReferenceCounted(false);
+        }
+        // Times out on its own if the alarm is cancelled or moved
+        wakeLock.acquire(timeoutMs);
+    }
+
+    private static void releasePlayer() {
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+    }
+}
@@ -1,107 +1,125 @@
 package com.anonymous.AlarmClock;
 
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
-import android.net.Uri;
-import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
 import android.util.Log;
 
-import androidx.core.app.NotificationCompat;
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Broadcast receiver that triggers when an alarm time is reached
- * Launches full-screen alarm activity
+ * Starts RingingService and the full-screen alarm activity. onReceive only
+ * captures the intent and hands off to a dedicated HandlerThread through
+ * goAsync(), so ringing never waits on the main looper while a cold process
+ * is still starting up
  */
 public class AlarmReceiver extends BroadcastReceiver {
     private static final String TAG = "AlarmReceiver";
-    private static final String CHANNEL_ID = "alarm_channel";
-    private static final int NOTIFICATION_ID = 1001;
+
+    // Alarms this close to the wakeup are rung together rather than re-armed
+    private static final long DUE_WINDOW_MS = 1000;
+
+    // Release the broadcast well before the system's 10 s receiver timeout
+    private static final long DEADLINE_MS = 8000;
+
+    // Guarded by the class lock; written once by startWorker()
+    private static Handler workHandler;
+    private static Handler mainHandler;
 
     @Override
     public void onReceive(Context context, Intent intent) {
-        String alarmId = intent.getStringExtra("alarmId");
-        String label = intent.getStringExtra("label");
-        boolean isRepeating = intent.getBooleanExtra("isRepeating", false);
-
-        Log.d(TAG, "Alarm triggered: " + alarmId + " - " + label);
-
-        // Create notification channel
-        createNotificationChannel(context);
-
-        // Create intent to launch full-screen alarm activity
-        Intent fullScreenIntent = new Intent(context, AlarmActivity.class);
-        fullScreenIntent.putExtra("alarmId", alarmId);
-        fullScreenIntent.putExtra("label", label);
-        fullScreenIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | 
-                                  Intent.FLAG_ACTIVITY_CLEAR_TOP |
-                                  Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
-
-        PendingIntent fullScreenPendingIntent = PendingIntent.getActivity(
-            context,
-            alarmId.hashCode(),
-            fullScreenIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        // Create notification with full-screen intent
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
-            .setSmallIcon(context.getResources().getIdentifier("ic_launcher", "mipmap", context.getPackageName()))
-            .setContentTitle("Alarm")
-            .setContentText(label != null ? label : "Time to wake up!")
-            .setPriority(NotificationCompat.PRIORITY_MAX)
-            .setCategory(NotificationCompat.CATEGORY_ALARM)
-            .setAutoCancel(true)
-            .setOngoing(true)
-            .setFullScreenIntent(fullScreenPendingIntent, true)
-            .setContentIntent(fullScreenPendingIntent);
-
-        // Show the notification
-        NotificationManager notificationManager = 
-            (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
-        notificationManager.notify(NOTIFICATION_ID, builder.build());
+        long receivedAt = System.currentTimeMillis();
+        Context appContext = context.getApplicationContext();
+        PendingResult result = goAsync();
+        AtomicBoolean finished = new AtomicBoolean();
+        Runnable finish = () -> {
+            if (finished.compareAndSet(false, true)) {
+                result.finish();
+            }
+        };
 
-        // Also directly start the activity
-        context.startActivity(fullScreenIntent);
+        startWorker();
+        // Runs on the main looper so it still fires if the worker is stuck
+        Runnable deadline = () -> {
+            if (!finished.get()) {
+                Log.w(TAG, "Alarm handling exceeded " + DEADLINE_MS + " ms, releasing broadcast");
+                finish.run();
+            }
+        };
+        mainHandler.postDelayed(deadline, DEADLINE_MS);
+        workHandler.post(() -> {
+            try {
+                handle(appContext, intent, receivedAt);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error handling alarm broadcast", e);
+            } finally {
+                mainHandler.removeCallbacks(deadline);
+                finish.run();
+            }
+        });
+    }
 
-        Log.d(TAG, "Full-screen alarm launched for: " + alarmId);
+    private static synchronized void startWorker() {
+        if (workHandler == null) {
+            HandlerThread thread = new HandlerThread("AlarmReceiver", Process.THREAD_PRIORITY_FOREGROUND);
+            thread.start();
+            workHandler = new Handler(thread.getLooper());
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
     }
 
-    private void createNotificationChannel(Context context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            CharSequence name = "Alarm Notifications";
-            String description = "Notifications for alarm clock";
-            int importance = NotificationManager.IMPORTANCE_HIGH;
-            
-            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-            channel.enableLights(true);
-            channel.enableVibration(true);
-            channel.setBypassDnd(true);
-            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
-            
-            // Set alarm sound
-            try {
-                int soundResId = context.getResources().getIdentifier("alarm", "raw", context.getPackageName());
-                if (soundResId != 0) {
-                    Uri soundUri = Uri.parse("android.resource://" + context.getPackageName() + "/" + soundResId);
-                    AudioAttributes audioAttributes = new AudioAttributes.Builder()
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .setUsage(AudioAttributes.USAGE_ALARM)
-                        .build();
-                    channel.setSound(soundUri, audioAttributes);
+    private static void handle(Context context, Intent intent, long receivedAt) {
+        if (AlarmScheduler.ACTION_PREWARM.equals(intent.getAction())) {
+            AlarmPrewarm.warm(context, receivedAt);
+            return;
+        }
+        if (AlarmScheduler.ACTION_WAKEUP.equals(intent.getAction())) {
+            List<ScheduledAlarm> due = AlarmScheduler.getInstance(context)
+                .pollDue(receivedAt + DUE_WINDOW_MS);
+            Log.d(TAG, "Wakeup fired with " + due.size() + " due alarm(s)");
+            TriggerLatency latency = TriggerLatency.tryGetInstance(context);
+            for (ScheduledAlarm alarm : due) {
+                if (latency != null) {
+                    latency.recordDelivery(alarm.id, alarm.triggerTime, receivedAt, AlarmPrewarm.isWarm(alarm.id));
+                }
+                showAlarm(context, alarm);
+            }
+            long doneAt = System.currentTimeMillis();
+            if (latency != null) {
+                for (ScheduledAlarm alarm : due) {
+                    latency.recordReceiverDone(alarm.id, doneAt);
                 }
-            } catch (Exception e) {
-                Log.e(TAG, "Error setting alarm sound", e);
             }
+            Log.d(TAG, "Handled wakeup in " + (doneAt - receivedAt) + " ms");
+            return;
+        }
 
-            NotificationManager notificationManager = context.getSystemService(NotificationManager.class);
-            notificationManager.createNotificationChannel(channel);
+        // Per-alarm intent armed before the heap scheduler was introduced
+        String alarmId = intent.getStringExtra("alarmId");
+        String label = intent.getStringExtra("label");
+        if (alarmId != null) {
+            showAlarm(context, new ScheduledAlarm(alarmId, label, receivedAt, false).withRequestCode(alarmId.hashCode()));
         }
     }
+
+    private static void showAlarm(Context context, ScheduledAlarm alarm) {
+        Log.d(TAG, "Alarm triggered: " + alarm.id + " - " + alarm.label);
+
+        // The service posts the full-screen notification and owns sound, vibration and snooze
+        RingingService.ring(context, alarm);
+
+        // Also directly start the activity
+        context.startActivity(AlarmScheduler.createAlarmIntent(context, alarm.id, alarm.label,
+            alarm.offeredSnoozeMinutes()));
+
+        Log.d(TAG, "Full-screen alarm launched for: " + alarm.id);
+    }
 }
@@ -0,0 +1,550 @@
+package com.anonymous.AlarmClock;
+
+import android.app.AlarmManager;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import com.anonymous.AlarmClock.core.AlarmEngine;
+import com.anonymous.AlarmClock.core.AlarmStore;
+import com.anonymous.AlarmClock.core.RequestCodeCache;
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.util.List;
+
+/**
+ * Process-wide Android adapter over AlarmEngine
+ * The engine keeps pending alarms in a min-heap mirrored to a memory-mapped
+ * AlarmStore; this class registers only its earliest trigger with
+ * AlarmManager, and when that fires AlarmReceiver pops every due alarm and
+ * the next one is armed. Engine calls are serialized by this object's lock
+ * within a process and by SchedulerState's file lock across processes.
+ * System service handles are looked up once per process and PendingIntents
+ * are reused: the wakeup intent is built once and full-screen intents sit in
+ * a small LRU keyed by request code, shared by AlarmModule and the receivers
+ */
+final class AlarmScheduler implements AlarmEngine.Host {
+    private static final String TAG = "AlarmScheduler";
+    static final String ACTION_WAKEUP = "com.anonymous.AlarmClock.WAKEUP";
+    static final String ACTION_PREWARM = "com.anonymous.AlarmClock.PREWARM";
+
+    private static final String STORE_NAME = "alarms.store";
+    private static final String STATE_NAME = "scheduler.state";
+
+    // Single request code shared by every wakeup registration
+    private static final int WAKEUP_REQUEST_CODE = 0x414C524D;
+    private static final int PREWARM_REQUEST_CODE = WAKEUP_REQUEST_CODE + 1;
+
+    // Full-screen intents kept for alarms that ring again in the same process
+    private static final int MAX_CACHED_INTENTS = 16;
+
+    private static AlarmScheduler instance;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final NotificationManager notificationManager;
+    private final File storeFile;
+    private final SchedulerState state;
+    // Opened once; reloaded in place when another process has changed it
+    private AlarmStore store;
+    // Rebuilt from the store whenever another process has changed it
+    private AlarmEngine engine;
+    private long seenStamp;
+    private final RequestCodeCache<PendingIntent> alarmIntents = new RequestCodeCache<>(MAX_CACHED_INTENTS);
+    private PendingIntent wakeupIntent;
+    private PendingIntent prewarmIntent;
+    // AlarmManager set/cancel calls issued by this process
+    private long binderCalls;
+    // Unchanged schedules skipped by engines this process has since replaced
+    private long skippedBeforeReload;
+
+    static synchronized AlarmScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmScheduler(Context context) {
+        this.context = context;
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        this.notificationManager = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        Context storageContext = getStorageContext(context);
+        this.storeFile = new File(storageContext.getFilesDir(), STORE_NAME);
+        try {
+            this.state = new SchedulerState(new File(storageContext.getFilesDir(), STATE_NAME));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open scheduler state", e);
+        }
+        synchronized (this) {
+            release(acquire(), false);
+        }
+        Log.d(TAG, "Loaded " + engine.size() + " pending alarms");
+    }
+
+    /**
+     * Add or replace an alarm and re-arm the system wakeup if the head changed
+     */
+    synchronized void schedule(ScheduledAlarm alarm) throws IOException {
+        FileLock lock = acquire();
+        try {
+            engine.schedule(alarm);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Apply a coalesced batch; see AlarmEngine.apply
+     */
+    synchronized void apply(List<String> cancels, List<ScheduledAlarm> schedules, Exception[] failures) {
+        FileLock lock = acquire();
+        try {
+            engine.apply(cancels, schedules, failures);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Make the pending alarms match a desired set with the minimal diff
+     */
+    synchronized AlarmEngine.Reconciliation reconcile(List<ScheduledAlarm> desired) throws IOException {
+        AlarmEngine.Reconciliation result;
+        FileLock lock = acquire();
+        try {
+            result = engine.reconcile(desired);
+        } finally {
+            release(lock, true);
+        }
+        Log.d(TAG, "Reconciled: " + result.added + " added, " + result.updated + " updated, "
+            + result.removed + " removed, " + result.unchanged + " unchanged");
+        return result;
+    }
+
+    /**
+     * Schedule a ringing alarm's snooze copy and return it
+     * Needs nothing from JS, so a snooze is kept even when React Native is
+     * not running; the caller checks ScheduledAlarm.canSnooze first
+     */
+    synchronized ScheduledAlarm snooze(ScheduledAlarm ringing, long now) throws IOException {
+        ScheduledAlarm snooze = ringing.snoozed(now);
+        FileLock lock = acquire();
+        try {
+            engine.schedule(snooze);
+        } finally {
+            release(lock, true);
+        }
+        Log.d(TAG, "Snoozed " + ringing.id + " until " + snooze.triggerTime + " (" + snooze.snoozeCount
+            + (ringing.maxSnoozes != ScheduledAlarm.UNLIMITED_SNOOZES ? "/" + ringing.maxSnoozes : "") + ")");
+        return snooze;
+    }
+
+    /**
+     * Move a scheduled alarm to a new trigger time; returns false when it was not scheduled
+     */
+    synchronized boolean reschedule(String alarmId, long triggerTime) throws IOException {
+        FileLock lock = acquire();
+        try {
+            return engine.reschedule(alarmId, triggerTime);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Remove an alarm; returns false when it was not scheduled
+     * Ids in the registry are resolved by a map lookup; only unknown ids pay
+     * for the legacy PendingIntent probe
+     */
+    synchronized boolean cancel(String alarmId) {
+        FileLock lock = acquire();
+        try {
+            return engine.cancel(alarmId);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Remove many alarms in one pass; the result holds, per id, whether it was scheduled
+     */
+    synchronized boolean[] cancelAll(List<String> alarmIds) {
+        FileLock lock = acquire();
+        try {
+            return engine.cancelAll(alarmIds);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Drop every registered alarm and the system wakeup; returns how many were removed
+     */
+    synchronized int clear() throws IOException {
+        int count;
+        FileLock lock = acquire();
+        try {
+            count = engine.clear();
+        } finally {
+            release(lock, true);
+        }
+        // engine.clear() disarmed the wakeup through AlarmManager; the shared
+        // PendingIntent itself stays valid so the next armWakeup can reuse it
+        alarmIntents.clear();
+
+        Log.d(TAG, "Cleared " + count + " alarms");
+        return count;
+    }
+
+    /**
+     * Pop every alarm due at or before the given time and arm the next one
+     * Repeating alarms are put back at their next occurrence
+     */
+    synchronized List<ScheduledAlarm> pollDue(long now) {
+        FileLock lock = acquire();
+        try {
+            return engine.pollDue(now);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Re-arm everything after a reboot; returns the number of alarms left pending
+     */
+    synchronized int restore(long now) {
+        FileLock lock = acquire();
+        try {
+            return engine.restore(now);
+        } finally {
+            release(lock, true);
+        }
+    }
+
+    /**
+     * Move wall-clock alarms after a time zone or clock change; returns the number moved
+     */
+    synchronized int recomputeWallClock(long now) {
+        int moved;
+        FileLock lock = acquire();
+        try {
+            moved = engine.recomputeWallClock(now);
+        } finally {
+            release(lock, true);
+        }
+        Log.d(TAG, "Recomputed wall-clock alarms, " + moved + " moved");
+        return moved;
+    }
+
+    /**
+     * Fire a pre-warm trigger this long before every alarm; 0 disables it
+     */
+    synchronized void setPrewarmLead(long leadMs) {
+        FileLock lock = acquire();
+        try {
+            state.setPrewarmLead(Math.max(0, leadMs));
+            if (state.getArmedTime() != AlarmEngine.NOT_ARMED) {
+                armPrewarm(state.getArmedTime());
+            } else {
+                cancelPrewarm();
+            }
+        } finally {
+            release(lock, false);
+        }
+        Log.d(TAG, "Pre-warm lead set to " + leadMs + " ms");
+    }
+
+    synchronized long getPrewarmLead() {
+        return state.getPrewarmLead();
+    }
+
+    /**
+     * Next alarm to ring, or null
+     */
+    synchronized ScheduledAlarm peek() {
+        FileLock lock = acquire();
+        try {
+            return engine.peek();
+        } finally {
+            release(lock, false);
+        }
+    }
+
+    synchronized int size() {
+        FileLock lock = acquire();
+        try {
+            return engine.size();
+        } finally {
+            release(lock, false);
+        }
+    }
+
+    /**
+     * Read one alarm straight from the store
+     */
+    synchronized ScheduledAlarm get(String alarmId) {
+        FileLock lock = acquire();
+        try {
+            return engine.get(alarmId);
+        } finally {
+            release(lock, false);
+        }
+    }
+
+    /**
+     * Read every stored alarm
+     */
+    synchronized List<ScheduledAlarm> getAll() {
+        FileLock lock = acquire();
+        try {
+            return engine.getAll();
+        } finally {
+            release(lock, false);
+        }
+    }
+
+    /**
+     * Whether exact alarms are allowed; always true before Android 12
+     */
+    boolean canScheduleExactAlarms() {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    synchronized long getBinderCalls() {
+        return binderCalls;
+    }
+
+    /**
+     * Unchanged schedules skipped by this process, like binderCalls; kept
+     * across engine reloads, which start a fresh engine counter
+     */
+    synchronized long getSkippedCalls() {
+        return skippedBeforeReload + engine.getSkippedCalls();
+    }
+
+    NotificationManager getNotificationManager() {
+        return notificationManager;
+    }
+
+    /**
+     * Full-screen PendingIntent for a ringing alarm, reused from the LRU when
+     * it was last built for the same extras
+     */
+    synchronized PendingIntent getAlarmIntent(String alarmId, String label, int requestCode, int snoozeMinutes) {
+        PendingIntent cached = alarmIntents.get(requestCode, alarmId, label, snoozeMinutes);
+        if (cached != null) {
+            return cached;
+        }
+        PendingIntent pendingIntent = PendingIntent.getActivity(
+            context,
+            requestCode,
+            createAlarmIntent(context, alarmId, label, snoozeMinutes),
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        alarmIntents.put(requestCode, alarmId, label, snoozeMinutes, pendingIntent);
+        return pendingIntent;
+    }
+
+    /**
+     * Intent that opens the full-screen ringing activity for an alarm;
+     * snoozeMinutes is 0 when the alarm can not be snoozed again
+     */
+    static Intent createAlarmIntent(Context context, String alarmId, String label, int snoozeMinutes) {
+        Intent intent = new Intent(context, AlarmActivity.class);
+        intent.putExtra("alarmId", alarmId);
+        intent.putExtra("label", label);
+        intent.putExtra("snoozeMinutes", snoozeMinutes);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK |
+                        Intent.FLAG_ACTIVITY_CLEAR_TOP |
+                        Intent.FLAG_ACTIVITY_EXCLUDE_FROM_RECENTS);
+        return intent;
+    }
+
+    @Override
+    public void armWakeup(String alarmId, long triggerTime) {
+        PendingIntent pendingIntent = getWakeupIntent();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            // Use setExactAndAllowWhileIdle for exact timing even in Doze mode
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+        } else {
+            alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTime, pendingIntent);
+        }
+        binderCalls++;
+        setArmed(alarmId, triggerTime);
+        armPrewarm(triggerTime);
+        Log.d(TAG, "Wakeup armed for " + alarmId + " at " + triggerTime);
+    }
+
+    @Override
+    public void disarmWakeup() {
+        alarmManager.cancel(getWakeupIntent());
+        binderCalls++;
+        setArmed(null, AlarmEngine.NOT_ARMED);
+        if (state.getPrewarmLead() > 0) {
+            cancelPrewarm();
+        }
+        Log.d(TAG, "Wakeup cleared");
+    }
+
+    /**
+     * Alarms armed before the heap scheduler used one PendingIntent per id;
+     * drop any such registration so it cannot fire alongside the wakeup
+     */
+    @Override
+    public void onUnknownAlarm(String alarmId) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        PendingIntent legacy = PendingIntent.getBroadcast(
+            context,
+            alarmId.hashCode(),
+            intent,
+            PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (legacy != null) {
+            alarmManager.cancel(legacy);
+            binderCalls++;
+            legacy.cancel();
+        }
+    }
+
+    @Override
+    public void onRequestCodeReleased(int requestCode) {
+        alarmIntents.remove(requestCode);
+    }
+
+    @Override
+    public void onStoreError(String alarmId, IOException e) {
+        Log.e(TAG, "Could not persist alarm " + alarmId, e);
+    }
+
+    /**
+     * The wakeup carries no extras - AlarmReceiver reads due alarms from the
+     * heap - so one PendingIntent serves every registration
+     */
+    private PendingIntent getWakeupIntent() {
+        if (wakeupIntent == null) {
+            Intent intent = new Intent(context, AlarmReceiver.class);
+            intent.setAction(ACTION_WAKEUP);
+            wakeupIntent = PendingIntent.getBroadcast(
+                context,
+                WAKEUP_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+        }
+        return wakeupIntent;
+    }
+
+    /**
+     * Register the pre-warm ahead of the armed wakeup. It uses plain setExact
+     * rather than the allow-while-idle variant so it never spends the Doze
+     * quota the real wakeup depends on; in deep idle it is simply skipped
+     */
+    private void armPrewarm(long triggerTime) {
+        long lead = state.getPrewarmLead();
+        if (lead <= 0) {
+            return;
+        }
+        long at = triggerTime - lead;
+        if (at <= System.currentTimeMillis()) {
+            cancelPrewarm();
+            return;
+        }
+        alarmManager.setExact(AlarmManager.RTC_WAKEUP, at, getPrewarmIntent());
+        binderCalls++;
+    }
+
+    private void cancelPrewarm() {
+        alarmManager.cancel(getPrewarmIntent());
+        binderCalls++;
+    }
+
+    private PendingIntent getPrewarmIntent() {
+        if (prewarmIntent == null) {
+            Intent intent = new Intent(context, AlarmReceiver.class);
+            intent.setAction(ACTION_PREWARM);
+            prewarmIntent = PendingIntent.getBroadcast(
+                context,
+                PREWARM_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+        }
+        return prewarmIntent;
+    }
+
+    private void setArmed(String id, long time) {
+        state.setArmed(id, time);
+    }
+
+    /**
+     * Take the cross-process lock and reload the engine if another process
+     * changed the store since this one last saw it. Locking failures are
+     * logged and the operation proceeds unlocked, as it did before the
+     * ":alarm" process existed
+     */
+    private FileLock acquire() {
+        FileLock lock = null;
+        try {
+            lock = state.lock();
+        } catch (IOException e) {
+            Log.e(TAG, "Could not lock scheduler state", e);
+        }
+        long stamp = state.getStamp();
+        if (engine == null || stamp != seenStamp) {
+            load();
+        }
+        return lock;
+    }
+
+    private void release(FileLock lock, boolean mutated) {
+        if (mutated) {
+            seenStamp = state.bumpStamp();
+        }
+        if (lock != null) {
+            try {
+                lock.release();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not unlock scheduler state", e);
+            }
+        }
+    }
+
+    private void load() {
+        try {
+            if (store == null) {
+                store = AlarmStore.open(storeFile);
+            } else {
+                store.reload();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open alarm store", e);
+        }
+        boolean reloaded = engine != null;
+        if (reloaded) {
+            skippedBeforeReload += engine.getSkippedCalls();
+        }
+        engine = new AlarmEngine(store, this, state.getArmedId(), state.getArmedTime());
+        seenStamp = state.getStamp();
+        if (reloaded) {
+            Log.d(TAG, "Reloaded " + engine.size() + " alarms changed by another process");
+        }
+    }
+
+    /**
+     * Alarms live in device-protected storage so they can be restored and rung
+     * before the user first unlocks after a reboot
+     */
+    static Context getStorageContext(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) {
+            return context;
+        }
+        return context.createDeviceProtectedStorageContext();
+    }
+}
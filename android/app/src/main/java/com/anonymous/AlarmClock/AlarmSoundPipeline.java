@@ -0,0 +1,366 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.RingtoneManager;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+
+/**
+ * Starts a ringing alarm's sound without blocking, falling back stage by stage
+ * The stages are the decoded PCM cache, the bundled raw resource, the default
+ * alarm tone, the default notification tone and a tone synthesized in memory.
+ * MediaPlayer stages prepare asynchronously; each stage has a time budget
+ * after which it is abandoned for the next one, so a slow or broken URI delays
+ * sound by a bounded amount. While they prepare, the synthesized tone plays
+ * at once and crossfades into the real sound when it starts, so the alarm is
+ * never silent while waiting. A player that fails while ringing also moves on
+ * to the next stage. How long each attempted stage took and which one played
+ * are recorded in TriggerLatency; first audio is whatever was heard first,
+ * including the instant tone. Confined to the handler's thread
+ */
+final class AlarmSoundPipeline {
+    private static final String TAG = "AlarmSoundPipeline";
+
+    static final int STAGE_PCM = 0;
+    static final int STAGE_RAW = 1;
+    static final int STAGE_ALARM = 2;
+    static final int STAGE_NOTIFICATION = 3;
+    static final int STAGE_TONE = 4;
+    static final int STAGE_COUNT = 5;
+
+    private static final String[] STAGE_NAMES = {"pcm", "raw", "alarm", "notification", "tone"};
+
+    // Longest each stage may take to become audible before the next is tried
+    private static final long[] BUDGET_MS = {500, 1500, 1000, 1000, 500};
+
+    private static final long CROSSFADE_MS = 300;
+    private static final long CROSSFADE_STEP_MS = 20;
+
+    private final Context context;
+    private final Handler handler;
+    private final TriggerLatency latency;
+    private final Runnable timeout = this::onTimeout;
+    private final Runnable crossfadeStep = this::onCrossfadeStep;
+
+    private String alarmId;
+    // A player the pre-warm already prepared from the raw resource
+    private MediaPlayer warmPlayer;
+    private int stage = -1;
+    private long stageStart;
+    private boolean started;
+    private boolean released;
+    private PcmAlarmPlayer pcmPlayer;
+    private MediaPlayer mediaPlayer;
+    private ToneSynthesizer tonePlayer;
+    // Covers MediaPlayer preparation; faded out once a stage is audible
+    private ToneSynthesizer instantTone;
+    private long crossfadeStart;
+
+    AlarmSoundPipeline(Context context, Handler handler, String alarmId, MediaPlayer warmPlayer) {
+        this.context = context;
+        this.handler = handler;
+        this.alarmId = alarmId;
+        this.warmPlayer = warmPlayer;
+        latency = TriggerLatency.tryGetInstance(context);
+    }
+
+    void start() {
+        nextStage();
+    }
+
+    /**
+     * A further alarm rang while this one plays; it shares the running sound
+     */
+    void join(String nextAlarmId) {
+        alarmId = nextAlarmId;
+        if (started && latency != null) {
+            latency.recordFirstAudio(nextAlarmId, System.currentTimeMillis(), stage);
+        }
+    }
+
+    /**
+     * Stop whatever is playing or preparing; the pipeline can not be restarted
+     */
+    void release() {
+        released = true;
+        handler.removeCallbacks(timeout);
+        handler.removeCallbacks(crossfadeStep);
+        releaseInstantTone();
+        releasePlayers();
+        if (warmPlayer != null) {
+            warmPlayer.release();
+            warmPlayer = null;
+        }
+    }
+
+    /**
+     * Unprepared alarm-usage looping player for a sound
+     */
+    static MediaPlayer newPlayer(Context context, Uri uri) throws IOException {
+        MediaPlayer player = new MediaPlayer();
+        try {
+            player.setDataSource(context, uri);
+            player.setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build());
+            player.setLooping(true);
+            player.setVolume(1.0f, 1.0f);
+            return player;
+        } catch (IOException | RuntimeException e) {
+            player.release();
+            throw e;
+        }
+    }
+
+    static Uri rawUri(Context context) {
+        return Uri.parse("android.resource://" + context.getPackageName() + "/" + R.raw.alarm);
+    }
+
+    private void nextStage() {
+        if (released) {
+            return;
+        }
+        while (++stage < STAGE_COUNT) {
+            stageStart = SystemClock.elapsedRealtime();
+            try {
+                if (startStage()) {
+                    if (!started) {
+                        handler.postDelayed(timeout, BUDGET_MS[stage]);
+                    }
+                    return;
+                }
+                Log.d(TAG, "Stage " + STAGE_NAMES[stage] + " unavailable");
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Stage " + STAGE_NAMES[stage] + " failed", e);
+                releasePlayers();
+            }
+            recordAttempt();
+        }
+        Log.e(TAG, "No alarm sound could be started for " + alarmId + "; vibration only");
+    }
+
+    /**
+     * Begin the current stage; false when it has nothing to play
+     */
+    private boolean startStage() throws IOException {
+        switch (stage) {
+            case STAGE_PCM: {
+                PcmSound sound = PcmSound.load(context, R.raw.alarm);
+                if (sound == null) {
+                    // Next time, ring from the decoded cache
+                    PcmSound.decodeInBackground(context, R.raw.alarm);
+                    return false;
+                }
+                startPcm(sound);
+                return true;
+            }
+            case STAGE_RAW:
+                if (warmPlayer != null) {
+                    mediaPlayer = warmPlayer;
+                    warmPlayer = null;
+                    watch(mediaPlayer);
+                    startFaded(mediaPlayer);
+                    onAudible(System.currentTimeMillis());
+                    return true;
+                }
+                return prepare(rawUri(context));
+            case STAGE_ALARM:
+                return prepare(RingtoneManager.getDefaultUri(RingtoneManager.TYPE_ALARM));
+            case STAGE_NOTIFICATION:
+                return prepare(RingtoneManager.getDefaultUri(RingtoneManager.TYPE_NOTIFICATION));
+            case STAGE_TONE:
+                if (instantTone != null) {
+                    // Already audible; keep it rather than restart the pattern
+                    tonePlayer = instantTone;
+                    instantTone = null;
+                    tonePlayer.setVolume(1.0f);
+                } else {
+                    tonePlayer = new ToneSynthesizer(ToneSynthesizer.DEFAULT_PATTERN);
+                    tonePlayer.start();
+                }
+                onAudible(System.currentTimeMillis());
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void startPcm(PcmSound sound) {
+        final int pcmStage = stage;
+        pcmPlayer = new PcmAlarmPlayer(sound);
+        if (instantTone != null) {
+            pcmPlayer.setVolume(0.0f);
+        }
+        // Reported from the playback thread; hop back before touching state
+        pcmPlayer.start(renderedAt -> handler.post(() -> {
+            if (!released && stage == pcmStage && !started) {
+                onAudible(renderedAt);
+            }
+        }));
+    }
+
+    private boolean prepare(Uri uri) throws IOException {
+        if (uri == null) {
+            return false;
+        }
+        startInstantTone();
+        // setDataSource may resolve a content URI synchronously; prepare never blocks
+        mediaPlayer = newPlayer(context, uri);
+        watch(mediaPlayer);
+        mediaPlayer.setOnPreparedListener(player -> {
+            if (player == mediaPlayer && !released) {
+                startFaded(player);
+                // MediaPlayer does not report its first rendered sample; start() is the closest point
+                onAudible(System.currentTimeMillis());
+            }
+        });
+        mediaPlayer.prepareAsync();
+        return true;
+    }
+
+    private void watch(MediaPlayer player) {
+        // A pre-warmed player reports on the thread that created it; hop back
+        player.setOnErrorListener((failed, what, extra) -> {
+            handler.post(() -> {
+                if (failed == mediaPlayer && !released) {
+                    Log.e(TAG, "Stage " + STAGE_NAMES[stage] + " error " + what + "/" + extra);
+                    fail();
+                }
+            });
+            return true;
+        });
+    }
+
+    /**
+     * Start the synthesized tone while a MediaPlayer stage prepares; once per pipeline
+     */
+    private void startInstantTone() {
+        if (instantTone != null || tonePlayer != null) {
+            return;
+        }
+        try {
+            instantTone = new ToneSynthesizer(ToneSynthesizer.DEFAULT_PATTERN);
+            instantTone.start();
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Instant tone unavailable", e);
+            instantTone = null;
+            return;
+        }
+        // A static track is filled before play(), so sound follows at once
+        if (latency != null) {
+            latency.recordFirstAudio(alarmId, System.currentTimeMillis(), STAGE_TONE);
+        }
+    }
+
+    private void startFaded(MediaPlayer player) {
+        if (instantTone != null) {
+            player.setVolume(0.0f, 0.0f);
+        }
+        player.start();
+    }
+
+    private void onAudible(long at) {
+        handler.removeCallbacks(timeout);
+        started = true;
+        recordAttempt();
+        if (latency != null) {
+            latency.recordFirstAudio(alarmId, at, stage);
+        }
+        Log.d(TAG, "Alarm sound started from " + STAGE_NAMES[stage] + " in "
+            + (SystemClock.elapsedRealtime() - stageStart) + " ms");
+        if (instantTone != null) {
+            crossfadeStart = SystemClock.elapsedRealtime();
+            handler.post(crossfadeStep);
+        }
+    }
+
+    private void onCrossfadeStep() {
+        if (released || !started || instantTone == null) {
+            return;
+        }
+        float progress = Math.min(1.0f, (SystemClock.elapsedRealtime() - crossfadeStart) / (float) CROSSFADE_MS);
+        instantTone.setVolume(1.0f - progress);
+        setStageVolume(progress);
+        if (progress < 1.0f) {
+            handler.postDelayed(crossfadeStep, CROSSFADE_STEP_MS);
+        } else {
+            releaseInstantTone();
+        }
+    }
+
+    private void setStageVolume(float volume) {
+        if (pcmPlayer != null) {
+            pcmPlayer.setVolume(volume);
+        }
+        if (mediaPlayer != null) {
+            mediaPlayer.setVolume(volume, volume);
+        }
+    }
+
+    private void releaseInstantTone() {
+        if (instantTone != null) {
+            instantTone.release();
+            instantTone = null;
+        }
+    }
+
+    private void onTimeout() {
+        if (!released && !started) {
+            Log.w(TAG, "Stage " + STAGE_NAMES[stage] + " exceeded " + BUDGET_MS[stage] + " ms");
+            fail();
+        }
+    }
+
+    /**
+     * Give up on the current stage, whether it was preparing or already playing
+     */
+    private void fail() {
+        handler.removeCallbacks(timeout);
+        handler.removeCallbacks(crossfadeStep);
+        if (instantTone != null) {
+            // Cover the next stage at full volume again
+            instantTone.setVolume(1.0f);
+        }
+        if (!started) {
+            recordAttempt();
+        }
+        started = false;
+        releasePlayers();
+        nextStage();
+    }
+
+    private void recordAttempt() {
+        if (latency != null) {
+            latency.recordSoundStage(alarmId, stage, SystemClock.elapsedRealtime() - stageStart);
+        }
+    }
+
+    private void releasePlayers() {
+        if (pcmPlayer != null) {
+            pcmPlayer.release();
+            pcmPlayer = null;
+        }
+        if (mediaPlayer != null) {
+            try {
+                if (mediaPlayer.isPlaying()) {
+                    mediaPlayer.stop();
+                }
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "Media player was not started", e);
+            }
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+        if (tonePlayer != null) {
+            tonePlayer.release();
+            tonePlayer = null;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.os.Build;
+import android.os.VibrationEffect;
+import android.os.Vibrator;
+
+import com.anonymous.AlarmClock.core.VibrationPattern;
+
+/**
+ * Per-process cache of the built-in vibration patterns as ready VibrationEffects
+ * Every VibrationPattern is turned into an effect once, using amplitudes when
+ * the vibrator supports them and the on/off timings otherwise, so starting a
+ * ringing alarm's vibration is an array lookup by the alarm's pattern index.
+ * Shared by everything that vibrates for an alarm
+ */
+final class AlarmVibration {
+    private static AlarmVibration instance;
+
+    private final Vibrator vibrator;
+    private final boolean available;
+    // Indexed like VibrationPattern; null entries (and all of them before API 26) use timings
+    private final Object[] effects;
+    private final AudioAttributes attributes = new AudioAttributes.Builder()
+        .setUsage(AudioAttributes.USAGE_ALARM)
+        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+        .build();
+
+    static synchronized AlarmVibration getInstance(Context context) {
+        if (instance == null) {
+            instance = new AlarmVibration(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AlarmVibration(Context context) {
+        vibrator = (Vibrator) context.getSystemService(Context.VIBRATOR_SERVICE);
+        available = vibrator != null && vibrator.hasVibrator();
+        effects = new Object[VibrationPattern.count()];
+        if (available && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            boolean amplitude = vibrator.hasAmplitudeControl();
+            for (int i = 0; i < effects.length; i++) {
+                VibrationPattern pattern = VibrationPattern.get(i);
+                if (pattern.isEmpty()) {
+                    continue;
+                }
+                effects[i] = amplitude
+                    ? VibrationEffect.createWaveform(pattern.amplitudeTimings, pattern.amplitudes,
+                        pattern.amplitudeRepeatIndex)
+                    : VibrationEffect.createWaveform(pattern.timings, pattern.repeatIndex);
+            }
+        }
+    }
+
+    /**
+     * Start a built-in pattern, replacing any vibration in progress
+     */
+    void vibrate(int patternIndex) {
+        if (!available) {
+            return;
+        }
+        int index = patternIndex >= 0 && patternIndex < effects.length ? patternIndex : VibrationPattern.DEFAULT;
+        VibrationPattern pattern = VibrationPattern.get(index);
+        if (pattern.isEmpty()) {
+            vibrator.cancel();
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            vibrator.vibrate((VibrationEffect) effects[index], attributes);
+        } else {
+            vibrator.vibrate(pattern.timings, pattern.repeatIndex, attributes);
+        }
+    }
+
+    void cancel() {
+        if (available) {
+            vibrator.cancel();
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.DisplayMetrics;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.Button;
+
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+
+import java.util.List;
+
+/**
+ * The whole ringing screen drawn by one view: clock, date, label and buttons
+ * Replaces a nested RelativeLayout/LinearLayout tree, so showing the screen
+ * inflates nothing and measures one view. Positions, label line breaks and
+ * button text are computed when the size or text changes; onDraw only issues
+ * draw calls. Clock text is drawn straight from LiveClock's char buffers.
+ * The snooze button shows the alarm's snooze length and is hidden once its
+ * snoozes are used up. The buttons are exposed to TalkBack and keyboard
+ * navigation as virtual views
+ */
+final class AlarmView extends View {
+    interface Listener {
+        void onDismiss();
+
+        void onSnooze();
+    }
+
+    private static final int BACKGROUND = Color.BLACK;
+    private static final int PRIMARY_TEXT = Color.WHITE;
+    private static final int SECONDARY_TEXT = 0xFFAAAAAA;
+    private static final int DISMISS_COLOR = 0xFFDC3545;
+    private static final int SNOOZE_COLOR = 0xFF6C757D;
+    private static final int PRESSED_COLOR = 0x33000000;
+
+    private static final String ICON = "⏰";
+    private static final String STATUS = "Alarm is ringing";
+    private static final String DISMISS = "Dismiss";
+    private static final int LABEL_MAX_LINES = 2;
+
+    private static final int NONE = 0;
+    private static final int DISMISS_BUTTON = 1;
+    private static final int SNOOZE_BUTTON = 2;
+
+    private final float density;
+    private final TextPaint timePaint;
+    private final TextPaint datePaint;
+    private final TextPaint iconPaint;
+    private final TextPaint labelPaint;
+    private final TextPaint statusPaint;
+    private final TextPaint dismissTextPaint;
+    private final TextPaint snoozeTextPaint;
+    private final Paint dismissPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint snoozePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pressedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF dismissRect = new RectF();
+    private final RectF snoozeRect = new RectF();
+    private final ButtonAccessibility accessibility;
+
+    private Listener listener;
+    private char[] time = new char[0];
+    private int timeLength;
+    private char[] date = new char[0];
+    private int dateLength;
+    private String label = "Alarm";
+    private String snoozeText = snoozeText(ScheduledAlarm.DEFAULT_SNOOZE_MINUTES);
+    private boolean snoozeVisible = true;
+
+    // Computed by layoutContent()
+    private float centerX;
+    private float timeBaseline;
+    private float dateBaseline;
+    private float iconBaseline;
+    private final CharSequence[] labelLines = new CharSequence[LABEL_MAX_LINES];
+    private int labelLineCount;
+    private float labelBaseline;
+    private float labelLineHeight;
+    private float statusBaseline;
+    private float dismissTextBaseline;
+    private float snoozeTextBaseline;
+    private float cornerRadius;
+    private int pressed = NONE;
+
+    AlarmView(Context context) {
+        super(context);
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        density = metrics.density;
+        float sp = metrics.scaledDensity;
+
+        Typeface light = Typeface.create("sans-serif-light", Typeface.NORMAL);
+        timePaint = textPaint(72 * sp, PRIMARY_TEXT, light);
+        datePaint = textPaint(18 * sp, SECONDARY_TEXT, Typeface.DEFAULT);
+        iconPaint = textPaint(64 * sp, PRIMARY_TEXT, Typeface.DEFAULT);
+        labelPaint = textPaint(24 * sp, PRIMARY_TEXT, Typeface.DEFAULT_BOLD);
+        statusPaint = textPaint(16 * sp, SECONDARY_TEXT, Typeface.DEFAULT);
+        dismissTextPaint = textPaint(20 * sp, PRIMARY_TEXT, Typeface.DEFAULT_BOLD);
+        snoozeTextPaint = textPaint(18 * sp, PRIMARY_TEXT, Typeface.DEFAULT);
+        dismissPaint.setColor(DISMISS_COLOR);
+        snoozePaint.setColor(SNOOZE_COLOR);
+        pressedPaint.setColor(PRESSED_COLOR);
+
+        setBackgroundColor(BACKGROUND);
+        setKeepScreenOn(true);
+        setFocusable(true);
+
+        accessibility = new ButtonAccessibility(this);
+        ViewCompat.setAccessibilityDelegate(this, accessibility);
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Adopt LiveClock's buffers; they are redrawn, not copied
+     */
+    void setClock(char[] time, int timeLength, char[] date, int dateLength) {
+        this.time = time;
+        this.timeLength = timeLength;
+        this.date = date;
+        this.dateLength = dateLength;
+        invalidate();
+    }
+
+    void setLabel(String label) {
+        this.label = label != null && !label.isEmpty() ? label : "Alarm";
+        setContentDescription(this.label + ". " + STATUS);
+        layoutLabel();
+        invalidate();
+    }
+
+    /**
+     * 0 hides the snooze button
+     */
+    void setSnoozeMinutes(int minutes) {
+        snoozeVisible = minutes > 0;
+        if (snoozeVisible) {
+            snoozeText = snoozeText(minutes);
+        }
+        if (!snoozeVisible && pressed == SNOOZE_BUTTON) {
+            pressed = NONE;
+        }
+        accessibility.invalidateRoot();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        layoutContent(width, height);
+        accessibility.invalidateRoot();
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return accessibility.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return accessibility.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        accessibility.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        canvas.drawText(time, 0, timeLength, centerX, timeBaseline, timePaint);
+        canvas.drawText(date, 0, dateLength, centerX, dateBaseline, datePaint);
+
+        canvas.drawText(ICON, centerX, iconBaseline, iconPaint);
+        for (int i = 0; i < labelLineCount; i++) {
+            CharSequence line = labelLines[i];
+            canvas.drawText(line, 0, line.length(), centerX, labelBaseline + i * labelLineHeight, labelPaint);
+        }
+        canvas.drawText(STATUS, centerX, statusBaseline, statusPaint);
+
+        drawButton(canvas, dismissRect, dismissPaint, pressed == DISMISS_BUTTON);
+        canvas.drawText(DISMISS, centerX, dismissTextBaseline, dismissTextPaint);
+        if (snoozeVisible) {
+            drawButton(canvas, snoozeRect, snoozePaint, pressed == SNOOZE_BUTTON);
+            canvas.drawText(snoozeText, centerX, snoozeTextBaseline, snoozeTextPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        int hit = hitTest(event.getX(), event.getY());
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedButton(hit);
+                return true;
+            case MotionEvent.ACTION_UP:
+                int released = pressed;
+                setPressedButton(NONE);
+                if (released != NONE && released == hit) {
+                    performClick();
+                    clickButton(released);
+                }
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                setPressedButton(NONE);
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private void layoutContent(int width, int height) {
+        float padding = dp(24);
+        centerX = width / 2f;
+
+        // Top: clock and date
+        timeBaseline = padding + dp(60) - timePaint.ascent();
+        dateBaseline = timeBaseline + timePaint.descent() + dp(8) - datePaint.ascent();
+
+        // Bottom: snooze at the bottom, dismiss above it
+        float buttonHeight = dp(64);
+        float snoozeBottom = height - padding - dp(40);
+        snoozeRect.set(padding, snoozeBottom - buttonHeight, width - padding, snoozeBottom);
+        dismissRect.set(padding, snoozeRect.top - dp(16) - buttonHeight, width - padding, snoozeRect.top - dp(16));
+        dismissTextBaseline = centeredBaseline(dismissRect, dismissTextPaint);
+        snoozeTextBaseline = centeredBaseline(snoozeRect, snoozeTextPaint);
+        cornerRadius = dp(12);
+
+        layoutLabel();
+    }
+
+    /**
+     * Break the label into at most two centred lines and centre the middle block
+     */
+    private void layoutLabel() {
+        int width = getWidth();
+        if (width == 0) {
+            return;
+        }
+        float maxWidth = width - 2 * dp(24);
+        labelLineCount = 0;
+        int start = 0;
+        int length = label.length();
+        while (start < length && labelLineCount < LABEL_MAX_LINES) {
+            if (labelLineCount == LABEL_MAX_LINES - 1) {
+                labelLines[labelLineCount++] = TextUtils.ellipsize(
+                    label.subSequence(start, length), labelPaint, maxWidth, TextUtils.TruncateAt.END);
+                break;
+            }
+            int count = labelPaint.breakText(label, start, length, true, maxWidth, null);
+            int end = start + Math.max(1, count);
+            if (end < length) {
+                // Prefer to break after a space
+                int space = label.lastIndexOf(' ', end);
+                if (space > start) {
+                    end = space + 1;
+                }
+            }
+            labelLines[labelLineCount++] = label.subSequence(start, end).toString().trim();
+            start = end;
+        }
+
+        labelLineHeight = labelPaint.descent() - labelPaint.ascent();
+        float iconHeight = iconPaint.descent() - iconPaint.ascent();
+        float statusHeight = statusPaint.descent() - statusPaint.ascent();
+        float blockHeight = iconHeight + dp(16) + labelLineCount * labelLineHeight + dp(8) + statusHeight;
+        float top = (getHeight() - blockHeight) / 2f;
+        iconBaseline = top - iconPaint.ascent();
+        labelBaseline = top + iconHeight + dp(16) - labelPaint.ascent();
+        statusBaseline = labelBaseline + labelPaint.descent() + (labelLineCount - 1) * labelLineHeight
+            + dp(8) - statusPaint.ascent();
+    }
+
+    private void drawButton(Canvas canvas, RectF rect, Paint paint, boolean isPressed) {
+        canvas.drawRoundRect(rect, cornerRadius, cornerRadius, paint);
+        if (isPressed) {
+            canvas.drawRoundRect(rect, cornerRadius, cornerRadius, pressedPaint);
+        }
+    }
+
+    private int hitTest(float x, float y) {
+        if (dismissRect.contains(x, y)) {
+            return DISMISS_BUTTON;
+        }
+        if (snoozeVisible && snoozeRect.contains(x, y)) {
+            return SNOOZE_BUTTON;
+        }
+        return NONE;
+    }
+
+    private void clickButton(int button) {
+        accessibility.sendEventForVirtualView(button, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        if (listener == null) {
+            return;
+        }
+        if (button == DISMISS_BUTTON) {
+            listener.onDismiss();
+        } else {
+            listener.onSnooze();
+        }
+    }
+
+    private void setPressedButton(int button) {
+        if (pressed != button) {
+            pressed = button;
+            invalidate();
+        }
+    }
+
+    private float dp(float value) {
+        return value * density;
+    }
+
+    private static String snoozeText(int minutes) {
+        return "Snooze " + minutes + " min";
+    }
+
+    private static float centeredBaseline(RectF rect, Paint paint) {
+        return (rect.top + rect.bottom) / 2f - (paint.ascent() + paint.descent()) / 2f;
+    }
+
+    /**
+     * Dismiss and snooze as virtual views; ids are the button constants
+     */
+    private final class ButtonAccessibility extends ExploreByTouchHelper {
+        private final Rect bounds = new Rect();
+
+        ButtonAccessibility(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int hit = hitTest(x, y);
+            return hit != NONE ? hit : HOST_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            virtualViewIds.add(DISMISS_BUTTON);
+            if (snoozeVisible) {
+                virtualViewIds.add(SNOOZE_BUTTON);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            boolean dismiss = virtualViewId == DISMISS_BUTTON;
+            (dismiss ? dismissRect : snoozeRect).roundOut(bounds);
+            node.setText(dismiss ? DISMISS : snoozeText);
+            node.setClassName(Button.class.getName());
+            node.setBoundsInParent(bounds);
+            node.setClickable(true);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            event.setContentDescription(virtualViewId == DISMISS_BUTTON ? DISMISS : snoozeText);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                return false;
+            }
+            if (virtualViewId == SNOOZE_BUTTON && !snoozeVisible) {
+                return false;
+            }
+            clickButton(virtualViewId);
+            return true;
+        }
+    }
+
+    private static TextPaint textPaint(float size, int color, Typeface typeface) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(size);
+        paint.setColor(color);
+        paint.setTypeface(typeface);
+        paint.setTextAlign(Paint.Align.CENTER);
+        return paint;
+    }
+}
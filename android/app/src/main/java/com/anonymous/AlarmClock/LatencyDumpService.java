@@ -0,0 +1,37 @@
+package com.anonymous.AlarmClock;
+
+import android.app.Service;
+import android.content.Intent;
+import android.os.IBinder;
+
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
+/**
+ * dumpsys hook for trigger latency histograms
+ * Guarded by the DUMP permission, so only the shell and system can reach it:
+ *   adb shell am start-service com.anonymous.AlarmClock/.LatencyDumpService
+ *   adb shell dumpsys activity service com.anonymous.AlarmClock/.LatencyDumpService
+ */
+public class LatencyDumpService extends Service {
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // Only needs to be running for dumpsys to reach it
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        TriggerLatency latency = TriggerLatency.tryGetInstance(this);
+        if (latency == null) {
+            writer.println("Trigger latency unavailable");
+            return;
+        }
+        latency.dump(writer);
+    }
+}
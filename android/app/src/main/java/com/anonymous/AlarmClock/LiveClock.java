@@ -0,0 +1,163 @@
+package com.anonymous.AlarmClock;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Current time and date text for the ringing screen, refreshed on minute boundaries
+ * One callback is posted for the start of the next minute, so nothing polls.
+ * Text is formatted into reused char buffers that a TextView or a custom view
+ * can take without copying, and the date is only reformatted when the day
+ * changes. Formatters are java.time DateTimeFormatters cached per locale and
+ * shared between threads; on releases without java.time, SimpleDateFormats
+ * are cached per locale and only used on the main thread
+ */
+final class LiveClock {
+    private static final long MINUTE_MS = 60_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    private static final String TIME_PATTERN = "HH:mm";
+    private static final String DATE_PATTERN = "EEEE, MMMM d";
+
+    // java.time is missing before Android 8.0; probed by class rather than SDK level
+    private static final boolean HAS_JAVA_TIME = hasJavaTime();
+
+    // { time, date } per locale
+    private static final Map<Locale, DateTimeFormatter[]> formatters = new ConcurrentHashMap<>();
+    // Main thread only
+    private static final Map<Locale, SimpleDateFormat[]> legacyFormats = new ConcurrentHashMap<>();
+
+    /**
+     * Called on the main thread; the arrays are reused, so copy them to keep them
+     */
+    interface Listener {
+        void onTick(char[] time, int timeLength, char[] date, int dateLength);
+    }
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+    private final Runnable tick = this::tick;
+    private final StringBuilder scratch = new StringBuilder(32);
+
+    private char[] time = new char[16];
+    private int timeLength;
+    private char[] date = new char[32];
+    private int dateLength;
+    private long formattedDay = Long.MIN_VALUE;
+    private Locale formattedLocale;
+    private boolean running;
+
+    LiveClock(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Show the current time now and keep it current until stop()
+     */
+    void start() {
+        running = true;
+        handler.removeCallbacks(tick);
+        // The zone or locale may have changed while stopped
+        formattedDay = Long.MIN_VALUE;
+        tick();
+    }
+
+    void stop() {
+        running = false;
+        handler.removeCallbacks(tick);
+    }
+
+    private void tick() {
+        if (!running) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        TimeZone zone = TimeZone.getDefault();
+        long local = now + zone.getOffset(now);
+        Locale locale = Locale.getDefault();
+        if (!locale.equals(formattedLocale)) {
+            formattedLocale = locale;
+            formattedDay = Long.MIN_VALUE;
+        }
+
+        format(now, zone, locale, true);
+        long day = Math.floorDiv(local, DAY_MS);
+        if (day != formattedDay) {
+            formattedDay = day;
+            format(now, zone, locale, false);
+        }
+        listener.onTick(time, timeLength, date, dateLength);
+
+        handler.postDelayed(tick, MINUTE_MS - Math.floorMod(local, MINUTE_MS));
+    }
+
+    private void format(long now, TimeZone zone, Locale locale, boolean isTime) {
+        scratch.setLength(0);
+        if (HAS_JAVA_TIME) {
+            DateTimeFormatter formatter = formatters(locale)[isTime ? 0 : 1];
+            formatter.formatTo(ZonedDateTime.ofInstant(Instant.ofEpochMilli(now), zone.toZoneId()), scratch);
+        } else {
+            SimpleDateFormat format = legacyFormats(locale)[isTime ? 0 : 1];
+            format.setTimeZone(zone);
+            scratch.append(format.format(new Date(now)));
+        }
+
+        int length = scratch.length();
+        if (isTime) {
+            time = fit(time, length);
+            scratch.getChars(0, length, time, 0);
+            timeLength = length;
+        } else {
+            date = fit(date, length);
+            scratch.getChars(0, length, date, 0);
+            dateLength = length;
+        }
+    }
+
+    private static char[] fit(char[] buffer, int length) {
+        return buffer.length >= length ? buffer : new char[Math.max(length, buffer.length * 2)];
+    }
+
+    private static DateTimeFormatter[] formatters(Locale locale) {
+        DateTimeFormatter[] cached = formatters.get(locale);
+        if (cached == null) {
+            cached = new DateTimeFormatter[] {
+                DateTimeFormatter.ofPattern(TIME_PATTERN, locale),
+                DateTimeFormatter.ofPattern(DATE_PATTERN, locale)
+            };
+            formatters.put(locale, cached);
+        }
+        return cached;
+    }
+
+    private static SimpleDateFormat[] legacyFormats(Locale locale) {
+        SimpleDateFormat[] cached = legacyFormats.get(locale);
+        if (cached == null) {
+            cached = new SimpleDateFormat[] {
+                new SimpleDateFormat(TIME_PATTERN, locale),
+                new SimpleDateFormat(DATE_PATTERN, locale)
+            };
+            legacyFormats.put(locale, cached);
+        }
+        return cached;
+    }
+
+    private static boolean hasJavaTime() {
+        try {
+            Class.forName("java.time.ZoneId");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.anonymous.AlarmClock
 
 import android.app.Application
 import android.content.res.Configuration
+import android.os.Build
 
 import com.facebook.react.PackageList
 import com.facebook.react.ReactApplication
@@ -16,6 +17,8 @@ import com.facebook.react.defaults.DefaultReactNativeHost
 import expo.modules.ApplicationLifecycleDispatcher
 import expo.modules.ReactNativeHostWrapper
 
+import java.io.File
+
 class MainApplication : Application(), ReactApplication {
 
   override val reactNativeHost: ReactNativeHost = ReactNativeHostWrapper(
@@ -39,8 +42,15 @@ class MainApplication : Application(), ReactApplication {
   override val reactHost: ReactHost
     get() = ReactNativeHostWrapper.createReactHost(applicationContext, reactNativeHost)
 
+  // AlarmReceiver, AlarmActivity and the other ringing components run here
+  private val isAlarmProcess: Boolean by lazy { currentProcessName().endsWith(ALARM_PROCESS_SUFFIX) }
+
   override fun onCreate() {
     super.onCreate()
+    if (isAlarmProcess) {
+      // The ringing path is plain Android; loading the JS engine would only delay it
+      return
+    }
     DefaultNewArchitectureEntryPoint.releaseLevel = try {
       ReleaseLevel.valueOf(BuildConfig.REACT_NATIVE_RELEASE_LEVEL.uppercase())
     } catch (e: IllegalArgumentException) {
@@ -52,6 +62,19 @@ class MainApplication : Application(), ReactApplication {
 
   override fun onConfigurationChanged(newConfig: Configuration) {
     super.onConfigurationChanged(newConfig)
-    ApplicationLifecycleDispatcher.onConfigurationChanged(this, newConfig)
+    if (!isAlarmProcess) {
+      ApplicationLifecycleDispatcher.onConfigurationChanged(this, newConfig)
+    }
+  }
+
+  private fun currentProcessName(): String =
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+        Application.getProcessName()
+      } else {
+        File("/proc/self/cmdline").readText().substringBefore('\u0000')
+      }
+
+  companion object {
+    private const val ALARM_PROCESS_SUFFIX = ":alarm"
   }
 }
@@ -0,0 +1,132 @@
+package com.anonymous.AlarmClock;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Loops a decoded PcmSound through a low-latency streaming AudioTrack
+ * A dedicated urgent-audio thread copies the memory-mapped samples into the
+ * track, wrapping at the end, so nothing is decoded while ringing. The same
+ * thread watches the track's timestamps and reports the wall-clock time at
+ * which the first frame was actually rendered, not merely queued
+ */
+final class PcmAlarmPlayer {
+    private static final String TAG = "PcmAlarmPlayer";
+
+    // Frames written per blocking call; small enough to stop promptly
+    private static final int CHUNK_FRAMES = 1024;
+    private static final long JOIN_TIMEOUT_MS = 500;
+
+    interface FirstFrameListener {
+        void onFirstFrame(long renderedAt);
+    }
+
+    private final PcmSound sound;
+    private final AudioTrack track;
+    private final Thread thread;
+    private volatile boolean running;
+    // Set before the thread starts
+    private FirstFrameListener listener;
+
+    PcmAlarmPlayer(PcmSound sound) {
+        this.sound = sound;
+        int minBuffer = AudioTrack.getMinBufferSize(
+            sound.sampleRate, sound.getChannelMask(), AudioFormat.ENCODING_PCM_16BIT);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+            .setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build())
+            .setAudioFormat(new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(sound.sampleRate)
+                .setChannelMask(sound.getChannelMask())
+                .build())
+            .setBufferSizeInBytes(Math.max(minBuffer, CHUNK_FRAMES * 2 * sound.channelCount))
+            .setTransferMode(AudioTrack.MODE_STREAM);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        track = builder.build();
+        if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            throw new IllegalStateException("AudioTrack not initialized");
+        }
+        thread = new Thread(this::loop, "AlarmPcm");
+    }
+
+    /**
+     * Start looping; the listener is called once, from the playback thread
+     */
+    void start(FirstFrameListener listener) {
+        this.listener = listener;
+        running = true;
+        track.play();
+        thread.start();
+    }
+
+    void setVolume(float volume) {
+        track.setVolume(volume);
+    }
+
+    /**
+     * Stop playback and free the track; safe to call more than once
+     */
+    void release() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            track.pause();
+            track.flush();
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Track already stopped", e);
+        }
+        track.release();
+    }
+
+    private void loop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+        ByteBuffer source = sound.pcm.duplicate();
+        int frameSize = 2 * sound.channelCount;
+        int end = source.capacity() - source.capacity() % frameSize;
+        int position = 0;
+        AudioTimestamp timestamp = new AudioTimestamp();
+        boolean reported = false;
+
+        while (running) {
+            source.limit(Math.min(end, position + CHUNK_FRAMES * frameSize));
+            source.position(position);
+            int written = track.write(source, source.remaining(), AudioTrack.WRITE_BLOCKING);
+            if (written < 0) {
+                Log.e(TAG, "AudioTrack write failed: " + written);
+                break;
+            }
+            position += written;
+            if (position >= end) {
+                position = 0;
+            }
+
+            if (!reported && track.getTimestamp(timestamp) && timestamp.framePosition > 0) {
+                reported = true;
+                // Back-date to frame 0, then move from the monotonic clock to wall time
+                long frameZeroNanos = timestamp.nanoTime - timestamp.framePosition * 1000000000L / sound.sampleRate;
+                long renderedAt = System.currentTimeMillis() - (System.nanoTime() - frameZeroNanos) / 1000000L;
+                if (listener != null) {
+                    listener.onFirstFrame(renderedAt);
+                }
+            }
+        }
+    }
+}
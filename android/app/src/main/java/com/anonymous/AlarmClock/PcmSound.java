@@ -0,0 +1,277 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.Process;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A sound resource decoded once to 16-bit PCM and kept in a memory-mapped cache file
+ * The file is keyed by resource id and app version code, so an update that
+ * changes the sound is decoded again and stale files are removed. Files live
+ * in device-protected storage next to the alarm store, so a locked device
+ * can still ring from the cache. A file is written under a temporary name
+ * and renamed when complete; a crash mid-decode leaves no partial cache
+ */
+final class PcmSound {
+    private static final String TAG = "PcmSound";
+
+    private static final int MAGIC = 0x50434D31;
+    private static final int HEADER_SIZE = 32;
+    private static final int H_MAGIC = 0;
+    private static final int H_SAMPLE_RATE = 4;
+    private static final int H_CHANNELS = 8;
+    private static final int H_DATA_SIZE = 16;
+
+    private static final long CODEC_TIMEOUT_US = 10000;
+
+    // Mapped sounds already opened in this process, by resource id
+    private static final Map<Integer, PcmSound> loaded = new HashMap<>();
+    // Held across a whole decode; separate so load() never waits on one
+    private static final Object decodeLock = new Object();
+
+    final int sampleRate;
+    final int channelCount;
+    // Interleaved little-endian 16-bit samples; duplicate() before reading
+    final ByteBuffer pcm;
+
+    private PcmSound(int sampleRate, int channelCount, ByteBuffer pcm) {
+        this.sampleRate = sampleRate;
+        this.channelCount = channelCount;
+        this.pcm = pcm;
+    }
+
+    int getFrameCount() {
+        return pcm.capacity() / (2 * channelCount);
+    }
+
+    int getChannelMask() {
+        return channelCount == 1 ? AudioFormat.CHANNEL_OUT_MONO : AudioFormat.CHANNEL_OUT_STEREO;
+    }
+
+    /**
+     * Map the cached decode of a resource; null when it has not been decoded yet
+     */
+    static synchronized PcmSound load(Context context, int resId) {
+        PcmSound sound = loaded.get(resId);
+        if (sound != null) {
+            return sound;
+        }
+        File file = cacheFile(context, resId);
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            sound = map(file);
+            loaded.put(resId, sound);
+            return sound;
+        } catch (IOException e) {
+            Log.e(TAG, "Dropping unreadable sound cache " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Decode a resource into the cache unless it is already there; returns the
+     * mapped sound, or null when the resource can not be decoded to 16-bit PCM
+     */
+    static PcmSound decode(Context context, int resId) {
+        synchronized (decodeLock) {
+            PcmSound cached = load(context, resId);
+            if (cached != null) {
+                return cached;
+            }
+            return decodeLocked(context, resId);
+        }
+    }
+
+    private static PcmSound decodeLocked(Context context, int resId) {
+        long start = System.currentTimeMillis();
+        File file = cacheFile(context, resId);
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            decodeTo(context, resId, temp);
+            if (!temp.renameTo(file)) {
+                throw new IOException("Could not rename " + temp.getName());
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Could not decode sound resource " + resId, e);
+            temp.delete();
+            return null;
+        }
+        removeStale(file.getParentFile(), resId, file.getName());
+        Log.d(TAG, "Decoded sound resource " + resId + " in " + (System.currentTimeMillis() - start) + " ms");
+        return load(context, resId);
+    }
+
+    /**
+     * Decode on a background thread if the cache is missing, so a later ring
+     * can skip MediaPlayer; returns at once
+     */
+    static void decodeInBackground(Context context, int resId) {
+        final Context appContext = context.getApplicationContext();
+        if (cacheFile(appContext, resId).exists()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            synchronized (decodeLock) {
+                if (!cacheFile(appContext, resId).exists()) {
+                    decodeLocked(appContext, resId);
+                }
+            }
+        }, "AlarmSoundDecode");
+        thread.start();
+    }
+
+    private static File cacheFile(Context context, int resId) {
+        Context storageContext = AlarmScheduler.getStorageContext(context.getApplicationContext());
+        return new File(storageContext.getFilesDir(), prefix(resId) + BuildConfig.VERSION_CODE + ".pcm");
+    }
+
+    private static String prefix(int resId) {
+        return "sound-" + Integer.toHexString(resId) + "-v";
+    }
+
+    private static void removeStale(File dir, int resId, String keep) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        String prefix = prefix(resId);
+        for (File file : files) {
+            if (file.getName().startsWith(prefix) && !file.getName().equals(keep)) {
+                file.delete();
+            }
+        }
+    }
+
+    private static PcmSound map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (channel.read(header, 0) != HEADER_SIZE || header.getInt(H_MAGIC) != MAGIC) {
+                throw new IOException("Bad sound cache header");
+            }
+            int sampleRate = header.getInt(H_SAMPLE_RATE);
+            int channels = header.getInt(H_CHANNELS);
+            long dataSize = header.getLong(H_DATA_SIZE);
+            if (channels < 1 || channels > 2 || dataSize <= 0 || HEADER_SIZE + dataSize != channel.size()) {
+                throw new IOException("Bad sound cache size");
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer pcm = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, dataSize);
+            pcm.order(ByteOrder.LITTLE_ENDIAN);
+            return new PcmSound(sampleRate, channels, pcm);
+        }
+    }
+
+    private static void decodeTo(Context context, int resId, File out) throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(resId);
+             FileOutputStream stream = new FileOutputStream(out)) {
+            extractor.setDataSource(afd.getFileDescriptor(), afd.getStartOffset(), afd.getLength());
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat candidate = extractor.getTrackFormat(i);
+                String mime = candidate.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    extractor.selectTrack(i);
+                    format = candidate;
+                    break;
+                }
+            }
+            if (format == null) {
+                throw new IOException("No audio track");
+            }
+
+            FileChannel channel = stream.getChannel();
+            // Header is rewritten with the final values once decoding is done
+            channel.write(ByteBuffer.allocate(HEADER_SIZE));
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+            MediaFormat outputFormat = null;
+            boolean inputDone = false;
+            long dataSize = 0;
+            while (true) {
+                if (!inputDone) {
+                    int inputIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                    if (inputIndex >= 0) {
+                        int size = extractor.readSampleData(codec.getInputBuffer(inputIndex), 0);
+                        if (size < 0) {
+                            codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                            inputDone = true;
+                        } else {
+                            codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                            extractor.advance();
+                        }
+                    }
+                }
+
+                int outputIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                    outputFormat = codec.getOutputFormat();
+                } else if (outputIndex >= 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    if (info.size > 0 && output != null) {
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        while (output.hasRemaining()) {
+                            dataSize += channel.write(output);
+                        }
+                    }
+                    codec.releaseOutputBuffer(outputIndex, false);
+                    if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                        break;
+                    }
+                }
+            }
+
+            if (outputFormat == null) {
+                outputFormat = codec.getOutputFormat();
+            }
+            if (outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                    && outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+                throw new IOException("Decoder output is not 16-bit PCM");
+            }
+            int channels = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            if (channels < 1 || channels > 2 || dataSize == 0) {
+                throw new IOException("Unsupported decoded audio: " + channels + " channels, " + dataSize + " bytes");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(H_MAGIC, MAGIC);
+            header.putInt(H_SAMPLE_RATE, outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE));
+            header.putInt(H_CHANNELS, channels);
+            header.putLong(H_DATA_SIZE, dataSize);
+            channel.write(header, 0);
+            channel.force(true);
+        } finally {
+            if (codec != null) {
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.anonymous.AlarmClock;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.media.AudioAttributes;
+import android.net.Uri;
+import android.os.Binder;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import com.anonymous.AlarmClock.core.ScheduledAlarm;
+import com.anonymous.AlarmClock.core.VibrationPattern;
+
+import java.io.IOException;
+
+
+/**
+ * Foreground service that owns a ringing alarm's sound, vibration and notification
+ * Playback outlives AlarmActivity, so recreating the activity or a second
+ * trigger never restarts or cuts the sound. AlarmSoundPipeline starts the
+ * sound on the service's own audio thread rather than the UI thread, falling
+ * back through alternative sources until one plays. Ringing stops only
+ * through ACTION_STOP - from the activity or the notification. A snooze is
+ * scheduled here, straight through AlarmScheduler on the audio thread, before
+ * React Native is told about it, so it does not depend on JS running and does
+ * not block the UI thread; dismiss/snooze is then reported after the fact.
+ * Every resource is released, and the snooze stored, before the service
+ * stops. AlarmActivity binds to follow the current alarm and to close when
+ * ringing ends
+ */
+public class RingingService extends Service {
+    private static final String TAG = "RingingService";
+    static final String CHANNEL_ID = "alarm_channel";
+    static final int NOTIFICATION_ID = 1001;
+
+    static final String ACTION_RING = "com.anonymous.AlarmClock.RING";
+    static final String ACTION_STOP = "com.anonymous.AlarmClock.STOP_RINGING";
+    static final String EVENT_DISMISSED = "ALARM_DISMISSED";
+    static final String EVENT_SNOOZED = "ALARM_SNOOZED";
+    // Sent for a ringing alarm that another alarm took over
+    static final String EVENT_REPLACED = "ALARM_REPLACED";
+
+    private static final String EXTRA_ALARM_ID = "alarmId";
+    private static final String EXTRA_LABEL = "label";
+    private static final String EXTRA_REQUEST_CODE = "requestCode";
+    private static final String EXTRA_VIBRATION = "vibration";
+    private static final String EXTRA_TRIGGER_TIME = "triggerTime";
+    private static final String EXTRA_SNOOZE_MINUTES = "snoozeMinutes";
+    private static final String EXTRA_MAX_SNOOZES = "maxSnoozes";
+    private static final String EXTRA_SNOOZE_COUNT = "snoozeCount";
+    private static final String EXTRA_EVENT_TYPE = "eventType";
+
+    // Request codes of the notification's dismiss and snooze actions
+    private static final int DISMISS_REQUEST_CODE = 0x52494E47;
+    private static final int SNOOZE_REQUEST_CODE = DISMISS_REQUEST_CODE + 1;
+
+    // The channel outlives the process; only create it once per process
+    private static volatile boolean channelCreated;
+
+    /**
+     * Callbacks for a bound AlarmActivity, made on the main thread
+     */
+    interface Listener {
+        /**
+         * snoozeMinutes is 0 when the alarm can not be snoozed again
+         */
+        void onAlarmChanged(String alarmId, String label, int snoozeMinutes);
+
+        void onRingingStopped();
+    }
+
+    final class LocalBinder extends Binder {
+        RingingService getService() {
+            return RingingService.this;
+        }
+    }
+
+    private final IBinder binder = new LocalBinder();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread audioThread;
+    private Handler audioHandler;
+
+    // Main thread only
+    private ScheduledAlarm alarm;
+    private Listener listener;
+
+    // Audio thread only
+    private AlarmSoundPipeline sound;
+    private boolean vibrating;
+
+    /**
+     * Start ringing for an alarm, or switch an already ringing service to it
+     */
+    static void ring(Context context, ScheduledAlarm alarm) {
+        Intent intent = new Intent(context, RingingService.class);
+        intent.setAction(ACTION_RING);
+        intent.putExtra(EXTRA_ALARM_ID, alarm.id);
+        intent.putExtra(EXTRA_LABEL, alarm.label);
+        intent.putExtra(EXTRA_REQUEST_CODE, alarm.requestCode);
+        intent.putExtra(EXTRA_VIBRATION, alarm.vibration);
+        intent.putExtra(EXTRA_TRIGGER_TIME, alarm.triggerTime);
+        intent.putExtra(EXTRA_SNOOZE_MINUTES, alarm.snoozeMinutes);
+        intent.putExtra(EXTRA_MAX_SNOOZES, alarm.maxSnoozes);
+        intent.putExtra(EXTRA_SNOOZE_COUNT, alarm.snoozeCount);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    /**
+     * Stop ringing and report eventType (EVENT_DISMISSED or EVENT_SNOOZED);
+     * the service schedules a snooze itself before reporting it
+     */
+    static void stop(Context context, String eventType) {
+        context.startService(createStopIntent(context, eventType));
+    }
+
+    private static Intent createStopIntent(Context context, String eventType) {
+        Intent intent = new Intent(context, RingingService.class);
+        intent.setAction(ACTION_STOP);
+        intent.putExtra(EXTRA_EVENT_TYPE, eventType);
+        return intent;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        audioThread = new HandlerThread("RingingService", Process.THREAD_PRIORITY_URGENT_AUDIO);
+        audioThread.start();
+        audioHandler = new Handler(audioThread.getLooper());
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        String action = intent != null ? intent.getAction() : null;
+        if (ACTION_RING.equals(action)) {
+            startRinging(readAlarm(intent));
+        } else if (ACTION_STOP.equals(action)) {
+            stopRinging(intent.getStringExtra(EXTRA_EVENT_TYPE), startId);
+        } else {
+            // Restarted without a ringing alarm; nothing to play
+            stopSelf(startId);
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Release on the audio thread, then let it exit
+        audioHandler.post(this::releaseAudio);
+        audioThread.quitSafely();
+        Log.d(TAG, "Ringing service destroyed");
+    }
+
+    String getAlarmId() {
+        return alarm != null ? alarm.id : null;
+    }
+
+    String getLabel() {
+        return alarm != null ? alarm.label : null;
+    }
+
+    int getSnoozeMinutes() {
+        return alarm != null ? alarm.offeredSnoozeMinutes() : 0;
+    }
+
+    void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    private static ScheduledAlarm readAlarm(Intent intent) {
+        return new ScheduledAlarm(
+            intent.getStringExtra(EXTRA_ALARM_ID),
+            intent.getStringExtra(EXTRA_LABEL),
+            intent.getLongExtra(EXTRA_TRIGGER_TIME, System.currentTimeMillis()),
+            false,
+            ScheduledAlarm.NO_TIME,
+            ScheduledAlarm.NO_TIME,
+            0,
+            intent.getIntExtra(EXTRA_REQUEST_CODE, 0),
+            intent.getIntExtra(EXTRA_VIBRATION, VibrationPattern.DEFAULT),
+            intent.getIntExtra(EXTRA_SNOOZE_MINUTES, 0),
+            intent.getIntExtra(EXTRA_MAX_SNOOZES, ScheduledAlarm.UNLIMITED_SNOOZES),
+            intent.getIntExtra(EXTRA_SNOOZE_COUNT, 0)
+        );
+    }
+
+    private void startRinging(ScheduledAlarm newAlarm) {
+        Notification notification = buildNotification(newAlarm);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+
+        ScheduledAlarm replaced = alarm;
+        if (replaced != null && !replaced.id.equals(newAlarm.id)) {
+            // The old alarm stops ringing without a dismiss or snooze; report it
+            // through the audio thread so it stays ordered with stop events
+            audioHandler.post(() -> sendEventToReactNative(EVENT_REPLACED, replaced, null));
+        }
+        alarm = newAlarm;
+        if (listener != null) {
+            listener.onAlarmChanged(newAlarm.id, newAlarm.label, newAlarm.offeredSnoozeMinutes());
+        }
+        audioHandler.post(() -> startAudio(newAlarm.id, newAlarm.vibration));
+        Log.d(TAG, "Ringing for: " + newAlarm.id);
+    }
+
+    /**
+     * Close the ringing screen at once; audio release, the snooze and the
+     * event run on the audio thread, and the service stops once they are done
+     */
+    private void stopRinging(String eventType, int startId) {
+        ScheduledAlarm stopped = alarm;
+        alarm = null;
+        if (listener != null) {
+            listener.onRingingStopped();
+        }
+        audioHandler.post(() -> {
+            releaseAudio();
+            if (stopped != null && eventType != null) {
+                reportStop(stopped, eventType);
+            }
+            mainHandler.post(() -> finishStop(stopped, startId));
+        });
+    }
+
+    /**
+     * Audio thread: schedule a requested snooze, then tell React Native
+     */
+    private void reportStop(ScheduledAlarm stopped, String eventType) {
+        ScheduledAlarm snooze = null;
+        if (EVENT_SNOOZED.equals(eventType)) {
+            if (stopped.canSnooze()) {
+                snooze = scheduleSnooze(stopped);
+            } else {
+                // Out of snoozes; the alarm is over
+                Log.w(TAG, "Snooze limit reached for " + stopped.id + ", dismissing");
+                eventType = EVENT_DISMISSED;
+            }
+        }
+        sendEventToReactNative(eventType, stopped, snooze);
+    }
+
+    /**
+     * Main thread: leave the foreground unless another alarm started ringing
+     * meanwhile; stopSelf(startId) is a no-op once a newer start arrived
+     */
+    private void finishStop(ScheduledAlarm stopped, int startId) {
+        if (alarm == null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+                stopForeground(STOP_FOREGROUND_REMOVE);
+            } else {
+                stopForeground(true);
+            }
+        }
+        stopSelf(startId);
+        Log.d(TAG, "Ringing stopped for: " + (stopped != null ? stopped.id : null));
+    }
+
+    /**
+     * Begin sound and the alarm's vibration pattern; a second alarm keeps the
+     * running playback and vibration
+     */
+    private void startAudio(String forAlarmId, int vibration) {
+        if (sound != null) {
+            sound.join(forAlarmId);
+            return;
+        }
+
+        AlarmVibration.getInstance(this).vibrate(vibration);
+        vibrating = true;
+
+        // Returns at once; the sound starts from the first stage that works
+        sound = new AlarmSoundPipeline(this, audioHandler, forAlarmId, AlarmPrewarm.takePlayer(forAlarmId));
+        sound.start();
+    }
+
+    private void releaseAudio() {
+        if (sound != null) {
+            sound.release();
+            sound = null;
+        }
+
+        if (vibrating) {
+            AlarmVibration.getInstance(this).cancel();
+            vibrating = false;
+        }
+    }
+
+    /**
+     * Audio thread: persist and arm the snooze before the service stops and
+     * the process may go; null if it could not be stored
+     */
+    private ScheduledAlarm scheduleSnooze(ScheduledAlarm ringing) {
+        ScheduledAlarm snooze;
+        try {
+            snooze = AlarmScheduler.getInstance(this).snooze(ringing, System.currentTimeMillis());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to schedule snooze for " + ringing.id, e);
+            return null;
+        }
+        if (ringing.vibration != VibrationPattern.NONE) {
+            // Short confirmation buzz; runs after releaseAudio so it is not cancelled
+            AlarmVibration.getInstance(this).vibrate(VibrationPattern.SNOOZE);
+        }
+        return snooze;
+    }
+
+    /**
+     * Tell React Native what happened, under the id the app knows the alarm
+     * by; a snooze carries when it rings again. Without snoozeUntil the
+     * snooze could not be stored natively and JS schedules it instead
+     */
+    private void sendEventToReactNative(String eventType, ScheduledAlarm stopped, ScheduledAlarm snooze) {
+        String appAlarmId = ScheduledAlarm.sourceId(stopped.id);
+        // The broadcast reaches AlarmEventModule only while the main process is alive
+        Intent intent = new Intent("com.anonymous.AlarmClock.ALARM_ACTION");
+        intent.setPackage(getPackageName());
+        intent.putExtra("eventType", eventType);
+        intent.putExtra("alarmId", appAlarmId);
+        if (snooze != null) {
+            intent.putExtra("snoozeUntil", snooze.triggerTime);
+            intent.putExtra("snoozeCount", snooze.snoozeCount);
+        } else if (EVENT_SNOOZED.equals(eventType)) {
+            // JS schedules this snooze itself and needs the count it should carry
+            intent.putExtra("snoozeCount", stopped.snoozeCount + 1);
+        }
+        sendBroadcast(intent);
+
+        Log.d(TAG, "Sent event to React Native: " + eventType + " for alarm " + appAlarmId);
+    }
+
+    private Notification buildNotification(ScheduledAlarm forAlarm) {
+        NotificationManager notificationManager = AlarmScheduler.getInstance(this).getNotificationManager();
+        createNotificationChannel(this, notificationManager);
+
+        int snoozeMinutes = forAlarm.offeredSnoozeMinutes();
+        PendingIntent fullScreenPendingIntent = AlarmScheduler.getInstance(this)
+            .getAlarmIntent(forAlarm.id, forAlarm.label, forAlarm.requestCode, snoozeMinutes);
+        PendingIntent dismissIntent = PendingIntent.getService(
+            this,
+            DISMISS_REQUEST_CODE,
+            createStopIntent(this, EVENT_DISMISSED),
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setSmallIcon(R.mipmap.ic_launcher)
+            .setContentTitle("Alarm")
+            .setContentText(forAlarm.label != null ? forAlarm.label : "Time to wake up!")
+            .setPriority(NotificationCompat.PRIORITY_MAX)
+            .setCategory(NotificationCompat.CATEGORY_ALARM)
+            .setOngoing(true)
+            .setFullScreenIntent(fullScreenPendingIntent, true)
+            .setContentIntent(fullScreenPendingIntent)
+            .addAction(0, "Dismiss", dismissIntent);
+        if (snoozeMinutes > 0) {
+            PendingIntent snoozeIntent = PendingIntent.getService(
+                this,
+                SNOOZE_REQUEST_CODE,
+                createStopIntent(this, EVENT_SNOOZED),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+            builder.addAction(0, "Snooze " + snoozeMinutes + " min", snoozeIntent);
+        }
+        return builder.build();
+    }
+
+    private static void createNotificationChannel(Context context, NotificationManager notificationManager) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && !channelCreated) {
+            NotificationChannel channel = new NotificationChannel(
+                CHANNEL_ID, "Alarm Notifications", NotificationManager.IMPORTANCE_HIGH);
+            channel.setDescription("Notifications for alarm clock");
+            channel.enableLights(true);
+            channel.enableVibration(true);
+            channel.setVibrationPattern(VibrationPattern.get(VibrationPattern.DEFAULT).timings);
+            channel.setBypassDnd(true);
+            channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
+
+            // Set alarm sound
+            Uri soundUri = Uri.parse("android.resource://" + context.getPackageName() + "/" + R.raw.alarm);
+            AudioAttributes audioAttributes = new AudioAttributes.Builder()
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .build();
+            channel.setSound(soundUri, audioAttributes);
+
+            notificationManager.createNotificationChannel(channel);
+            channelCreated = true;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.anonymous.AlarmClock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scheduler state shared by the app's processes through a small mapped file
+ * The main (React Native) process and the ":alarm" process each hold their
+ * own AlarmScheduler over the same store. Every scheduler operation runs
+ * under this file's lock; a change stamp bumped after each mutation tells
+ * the other process its in-memory heap is stale, and the armed wakeup and
+ * pre-warm lead live here rather than in SharedPreferences, which do not see
+ * other processes' writes. Callers synchronize within a process, as
+ * AlarmScheduler does
+ */
+final class SchedulerState {
+    private static final int MAGIC = 0x414C5353;
+    private static final int SIZE = 256;
+
+    private static final int S_MAGIC = 0;
+    private static final int S_STAMP = 8;
+    private static final int S_ARMED_TIME = 16;
+    private static final int S_ARMED_ID_LENGTH = 24;
+    private static final int S_ARMED_ID = 28;
+    private static final int S_PREWARM_LEAD = SIZE - 8;
+    private static final int MAX_ARMED_ID_LENGTH = S_PREWARM_LEAD - S_ARMED_ID;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    SchedulerState(File file) throws IOException {
+        // The channel stays open for locking for the life of the process
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        FileLock lock = channel.lock();
+        try {
+            if (raf.length() != SIZE) {
+                raf.setLength(SIZE);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(S_MAGIC) != MAGIC) {
+                buffer.putLong(S_STAMP, 0);
+                buffer.putLong(S_ARMED_TIME, -1);
+                buffer.putInt(S_ARMED_ID_LENGTH, -1);
+                buffer.putLong(S_PREWARM_LEAD, 0);
+                buffer.putInt(S_MAGIC, MAGIC);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Block until no other process is inside a scheduler operation
+     */
+    FileLock lock() throws IOException {
+        return channel.lock();
+    }
+
+    long getStamp() {
+        return buffer.getLong(S_STAMP);
+    }
+
+    /**
+     * Record a mutation; returns the new stamp
+     */
+    long bumpStamp() {
+        long stamp = buffer.getLong(S_STAMP) + 1;
+        buffer.putLong(S_STAMP, stamp);
+        return stamp;
+    }
+
+    /**
+     * How long before each alarm the pre-warm trigger fires; 0 when disabled
+     */
+    long getPrewarmLead() {
+        return buffer.getLong(S_PREWARM_LEAD);
+    }
+
+    void setPrewarmLead(long leadMs) {
+        buffer.putLong(S_PREWARM_LEAD, leadMs);
+    }
+
+    String getArmedId() {
+        int length = buffer.getInt(S_ARMED_ID_LENGTH);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(S_ARMED_ID + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    long getArmedTime() {
+        return buffer.getLong(S_ARMED_TIME);
+    }
+
+    /**
+     * An id too long to keep is stored as unknown, which costs at most one
+     * redundant wakeup registration
+     */
+    void setArmed(String id, long time) {
+        byte[] bytes = id != null ? id.getBytes(StandardCharsets.UTF_8) : null;
+        if (bytes != null && bytes.length > MAX_ARMED_ID_LENGTH) {
+            bytes = null;
+            time = -1;
+        }
+        buffer.putInt(S_ARMED_ID_LENGTH, -1);
+        if (bytes != null) {
+            for (int i = 0; i < bytes.length; i++) {
+                buffer.put(S_ARMED_ID + i, bytes[i]);
+            }
+        }
+        buffer.putLong(S_ARMED_TIME, time);
+        buffer.putInt(S_ARMED_ID_LENGTH, bytes != null ? bytes.length : -1);
+    }
+}
@@ -0,0 +1,54 @@
+package com.anonymous.AlarmClock;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.anonymous.AlarmClock.core.ZoneOffsets;
+
+/**
+ * Broadcast receiver for time zone and system clock changes
+ * Alarms are stored as instants, so a "07:00" alarm would keep its old
+ * instant until JS ran again. Wall-clock alarms are recomputed natively here
+ * and re-armed in one batch. DST needs no broadcast: triggers are computed
+ * with the offset in force on the day they fall on
+ */
+public class TimeChangeReceiver extends BroadcastReceiver {
+    private static final String TAG = "TimeChangeReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        boolean zoneChanged = Intent.ACTION_TIMEZONE_CHANGED.equals(action);
+        if (!zoneChanged && !Intent.ACTION_TIME_CHANGED.equals(action)) {
+            return;
+        }
+
+        Log.d(TAG, "Time changed (" + action + ") - recomputing alarms");
+        if (zoneChanged) {
+            // The new zone may carry different rules under a cached id
+            ZoneOffsets.invalidate();
+        }
+
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                try {
+                    int moved = AlarmScheduler.getInstance(appContext)
+                        .recomputeWallClock(System.currentTimeMillis());
+                    Log.d(TAG, "Moved " + moved + " alarms in "
+                        + (SystemClock.elapsedRealtime() - start) + " ms");
+                } catch (Exception e) {
+                    Log.e(TAG, "Error recomputing alarms", e);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        }, "AlarmTimeChange").start();
+    }
+}
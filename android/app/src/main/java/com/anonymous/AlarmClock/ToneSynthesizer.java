@@ -0,0 +1,161 @@
+package com.anonymous.AlarmClock;
+
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTrack;
+import android.os.Build;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plays an alarm tone pattern synthesized as PCM straight into a static AudioTrack
+ * No file, resource or decoder is involved, so the tone can start as soon as
+ * the track is built: as the last-resort alarm sound, and as an instant-start
+ * sound while the real one prepares. A pattern is a cycle of segments, each
+ * a chord of sine tones or silence, that loops until released. Synthesized
+ * cycles are cached per pattern for the life of the process
+ */
+final class ToneSynthesizer {
+    static final int SAMPLE_RATE = 44100;
+
+    // Fade each segment in and out so joins do not click
+    private static final int RAMP_MS = 5;
+    // Headroom so a chord never clips
+    private static final double PEAK = 0.8;
+
+    /**
+     * One step of a pattern; no frequencies is silence
+     */
+    static final class Segment {
+        final int durationMs;
+        final double[] frequencies;
+
+        private Segment(int durationMs, double[] frequencies) {
+            if (durationMs <= 0) {
+                throw new IllegalArgumentException("Segment duration must be positive");
+            }
+            this.durationMs = durationMs;
+            this.frequencies = frequencies;
+        }
+    }
+
+    static Segment tone(int durationMs, double... frequencies) {
+        return new Segment(durationMs, frequencies.clone());
+    }
+
+    static Segment silence(int durationMs) {
+        return new Segment(durationMs, new double[0]);
+    }
+
+    /**
+     * A looping cycle of segments
+     */
+    static final class Pattern {
+        final Segment[] segments;
+
+        Pattern(Segment... segments) {
+            if (segments.length == 0) {
+                throw new IllegalArgumentException("Pattern needs at least one segment");
+            }
+            this.segments = segments.clone();
+        }
+    }
+
+    // Rising pair of beeps, a short chord, then a pause
+    static final Pattern DEFAULT_PATTERN = new Pattern(
+        tone(150, 880), silence(50), tone(150, 1320), silence(50), tone(200, 880, 1320), silence(400));
+
+    private static final Map<Pattern, short[]> cycles = new HashMap<>();
+
+    private final AudioTrack track;
+
+    ToneSynthesizer(Pattern pattern) {
+        short[] cycle = cycle(pattern);
+        AudioTrack.Builder builder = new AudioTrack.Builder()
+            .setAudioAttributes(new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build())
+            .setAudioFormat(new AudioFormat.Builder()
+                .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                .setSampleRate(SAMPLE_RATE)
+                .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
+                .build())
+            .setBufferSizeInBytes(cycle.length * 2)
+            .setTransferMode(AudioTrack.MODE_STATIC);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY);
+        }
+        track = builder.build();
+        // A static track must be filled before it reports initialized
+        int written = track.write(cycle, 0, cycle.length);
+        if (written != cycle.length || track.getState() != AudioTrack.STATE_INITIALIZED) {
+            track.release();
+            throw new IllegalStateException("Tone track not initialized");
+        }
+        track.setLoopPoints(0, cycle.length, -1);
+    }
+
+    void start() {
+        track.play();
+    }
+
+    void setVolume(float volume) {
+        track.setVolume(volume);
+    }
+
+    /**
+     * Stops playback as well
+     */
+    void release() {
+        track.release();
+    }
+
+    private static synchronized short[] cycle(Pattern pattern) {
+        short[] cycle = cycles.get(pattern);
+        if (cycle == null) {
+            cycle = synthesize(pattern, SAMPLE_RATE);
+            cycles.put(pattern, cycle);
+        }
+        return cycle;
+    }
+
+    /**
+     * One cycle of the pattern as mono 16-bit samples
+     */
+    static short[] synthesize(Pattern pattern, int sampleRate) {
+        int total = 0;
+        for (Segment segment : pattern.segments) {
+            total += frames(segment, sampleRate);
+        }
+        short[] samples = new short[total];
+        int ramp = Math.max(1, sampleRate * RAMP_MS / 1000);
+        int start = 0;
+        for (Segment segment : pattern.segments) {
+            int frames = frames(segment, sampleRate);
+            int partials = segment.frequencies.length;
+            if (partials > 0) {
+                double[] step = new double[partials];
+                for (int p = 0; p < partials; p++) {
+                    step[p] = 2 * Math.PI * segment.frequencies[p] / sampleRate;
+                }
+                double amplitude = PEAK * Short.MAX_VALUE / partials;
+                for (int i = 0; i < frames; i++) {
+                    double envelope = Math.min(1.0, Math.min(i, frames - 1 - i) / (double) ramp);
+                    double sum = 0;
+                    for (int p = 0; p < partials; p++) {
+                        sum += Math.sin(step[p] * i);
+                    }
+                    samples[start + i] = (short) Math.round(amplitude * envelope * sum);
+                }
+            }
+            start += frames;
+        }
+        return samples;
+    }
+
+    private static int frames(Segment segment, int sampleRate) {
+        return (int) ((long) segment.durationMs * sampleRate / 1000);
+    }
+}
@@ -0,0 +1,333 @@
+package com.anonymous.AlarmClock;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.anonymous.AlarmClock.core.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how late each alarm rings, from its scheduled trigger time through
+ * broadcast delivery, the receiver's own work, AlarmActivity creation, the
+ * first drawn frame and the start of audio in RingingService, along with which
+ * sound source played and how long each source tried took. Samples go to a
+ * fixed ring of 128-byte slots in a memory-mapped file, so they survive the
+ * process being killed between alarms.
+ *
+ * Writers claim a slot with an atomic counter and never block: a slot's
+ * sequence word is cleared before its body is written and set last, so
+ * readers skip slots that are being overwritten. Later stages find their slot
+ * by alarm id among the most recent samples. All times are wall-clock millis,
+ * matching triggerTime
+ */
+final class TriggerLatency {
+    private static final String TAG = "TriggerLatency";
+    private static final String FILE_NAME = "latency.ring";
+
+    private static final int MAGIC = 0x414C4C54;
+    private static final int VERSION = 1;
+    private static final int CAPACITY = 256;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_NEXT_SEQ = 16;
+
+    private static final int SLOT_SIZE = 128;
+    private static final int S_SEQ = 0;
+    private static final int S_TRIGGER = 8;
+    private static final int S_RECEIVED = 16;
+    private static final int S_CREATED = 24;
+    private static final int S_FIRST_FRAME = 32;
+    private static final int S_FIRST_AUDIO = 40;
+    private static final int S_ID_HASH = 48;
+    private static final int S_FLAGS = 52;
+    private static final int S_RECEIVER_DONE = 56;
+    // AlarmSoundPipeline stage that played, or -1
+    private static final int S_SOUND_SOURCE = 64;
+    // Per pipeline stage: ms spent on it, or -1 when it was not tried
+    private static final int S_SOUND_STAGE_MS = 68;
+    // Microseconds AlarmActivity took to build its view, or -1
+    private static final int S_INFLATE_US = 88;
+
+    // The process had been pre-warmed for the alarm before it fired
+    private static final int FLAG_WARM = 1;
+
+    // How many recent slots a later stage searches for its alarm
+    private static final int LOOKBACK = 8;
+
+    static final String[] STAGES = {
+        "delivery", "receiver", "launch", "firstFrame", "firstAudio", "triggerToFrame", "triggerToAudio",
+        "warmTriggerToAudio", "coldTriggerToAudio",
+        "firstAudioPcm", "firstAudioRaw", "firstAudioAlarm", "firstAudioNotification", "firstAudioTone",
+        "soundPcm", "soundRaw", "soundAlarm", "soundNotification", "soundTone", "inflateUs"
+    };
+
+    // Indexed by AlarmSoundPipeline stage
+    private static final String[] SOURCE_STAGES = {
+        "firstAudioPcm", "firstAudioRaw", "firstAudioAlarm", "firstAudioNotification", "firstAudioTone"
+    };
+    private static final String[] ATTEMPT_STAGES = {
+        "soundPcm", "soundRaw", "soundAlarm", "soundNotification", "soundTone"
+    };
+
+    private static TriggerLatency instance;
+
+    private final MappedByteBuffer buffer;
+    private final AtomicLong nextSeq;
+
+    static synchronized TriggerLatency getInstance(Context context) {
+        if (instance == null) {
+            Context storageContext = AlarmScheduler.getStorageContext(context.getApplicationContext());
+            try {
+                instance = new TriggerLatency(new File(storageContext.getFilesDir(), FILE_NAME));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not open latency ring", e);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Instrumentation must never break ringing; failures are logged and dropped
+     */
+    static TriggerLatency tryGetInstance(Context context) {
+        try {
+            return getInstance(context);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Latency recording unavailable", e);
+            return null;
+        }
+    }
+
+    private TriggerLatency(File file) throws IOException {
+        int size = HEADER_SIZE + CAPACITY * SLOT_SIZE;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        long seq = 1;
+        if (buffer.getInt(H_MAGIC) == MAGIC && buffer.getInt(H_VERSION) == VERSION
+                && buffer.getInt(H_CAPACITY) == CAPACITY) {
+            seq = Math.max(1, buffer.getLong(H_NEXT_SEQ));
+            // A crash may have committed slots after the header was last written
+            for (int slot = 0; slot < CAPACITY; slot++) {
+                seq = Math.max(seq, buffer.getLong(slotOffset(slot) + S_SEQ) + 1);
+            }
+        } else {
+            for (int offset = 0; offset < size; offset += 8) {
+                buffer.putLong(offset, 0);
+            }
+            buffer.putInt(H_MAGIC, MAGIC);
+            buffer.putInt(H_VERSION, VERSION);
+            buffer.putInt(H_CAPACITY, CAPACITY);
+        }
+        nextSeq = new AtomicLong(seq);
+    }
+
+    /**
+     * Start a sample for an alarm delivered to AlarmReceiver
+     */
+    void recordDelivery(String alarmId, long triggerTime, long receivedAt, boolean warm) {
+        long seq = nextSeq.getAndIncrement();
+        int offset = slotOffset((int) (seq % CAPACITY));
+        buffer.putLong(offset + S_SEQ, 0);
+        buffer.putLong(offset + S_TRIGGER, triggerTime);
+        buffer.putLong(offset + S_RECEIVED, receivedAt);
+        buffer.putLong(offset + S_CREATED, 0);
+        buffer.putLong(offset + S_FIRST_FRAME, 0);
+        buffer.putLong(offset + S_FIRST_AUDIO, 0);
+        buffer.putInt(offset + S_ID_HASH, alarmId.hashCode());
+        buffer.putInt(offset + S_FLAGS, warm ? FLAG_WARM : 0);
+        buffer.putLong(offset + S_RECEIVER_DONE, 0);
+        buffer.putInt(offset + S_SOUND_SOURCE, -1);
+        for (int stage = 0; stage < AlarmSoundPipeline.STAGE_COUNT; stage++) {
+            buffer.putInt(offset + S_SOUND_STAGE_MS + 4 * stage, -1);
+        }
+        buffer.putInt(offset + S_INFLATE_US, -1);
+        buffer.putLong(offset + S_SEQ, seq);
+        buffer.putLong(H_NEXT_SEQ, seq + 1);
+    }
+
+    /**
+     * AlarmReceiver finished starting RingingService and the activity
+     */
+    void recordReceiverDone(String alarmId, long at) {
+        recordStage(alarmId, S_RECEIVER_DONE, at);
+    }
+
+    void recordActivityCreated(String alarmId, long at) {
+        recordStage(alarmId, S_CREATED, at);
+    }
+
+    /**
+     * Time to build and set the ringing view, in microseconds
+     */
+    void recordInflate(String alarmId, long micros) {
+        int offset = findSlot(alarmId);
+        if (offset >= 0 && buffer.getInt(offset + S_INFLATE_US) < 0) {
+            buffer.putInt(offset + S_INFLATE_US, (int) Math.min(Integer.MAX_VALUE, micros));
+        }
+    }
+
+    void recordFirstFrame(String alarmId, long at) {
+        recordStage(alarmId, S_FIRST_FRAME, at);
+    }
+
+    /**
+     * source is the AlarmSoundPipeline stage that played. For PCM stages at is
+     * the first rendered frame; for MediaPlayer it is start(), which does not
+     * report its first rendered sample
+     */
+    void recordFirstAudio(String alarmId, long at, int source) {
+        int offset = findSlot(alarmId);
+        if (offset >= 0 && buffer.getLong(offset + S_FIRST_AUDIO) == 0) {
+            buffer.putInt(offset + S_SOUND_SOURCE, source);
+            buffer.putLong(offset + S_FIRST_AUDIO, at);
+        }
+    }
+
+    /**
+     * Time spent on one AlarmSoundPipeline stage, whether or not it played
+     */
+    void recordSoundStage(String alarmId, int stage, long ms) {
+        int offset = findSlot(alarmId);
+        int field = S_SOUND_STAGE_MS + 4 * stage;
+        if (offset >= 0 && buffer.getInt(offset + field) < 0) {
+            buffer.putInt(offset + field, (int) Math.min(Integer.MAX_VALUE, ms));
+        }
+    }
+
+    /**
+     * Fill a stage of the newest sample for the alarm, once; a relaunched
+     * activity does not overwrite the first measurement
+     */
+    private void recordStage(String alarmId, int field, long at) {
+        int offset = findSlot(alarmId);
+        if (offset >= 0 && buffer.getLong(offset + field) == 0) {
+            buffer.putLong(offset + field, at);
+        }
+    }
+
+    /**
+     * Offset of the newest committed sample for the alarm, or -1
+     */
+    private int findSlot(String alarmId) {
+        if (alarmId == null) {
+            return -1;
+        }
+        int idHash = alarmId.hashCode();
+        long newest = nextSeq.get() - 1;
+        for (long seq = newest; seq > 0 && seq > newest - LOOKBACK; seq--) {
+            int offset = slotOffset((int) (seq % CAPACITY));
+            if (buffer.getLong(offset + S_SEQ) == seq && buffer.getInt(offset + S_ID_HASH) == idHash) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Aggregate every committed sample into one histogram per stage, keyed by STAGES
+     */
+    Map<String, LatencyHistogram> getHistograms() {
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        for (String stage : STAGES) {
+            histograms.put(stage, new LatencyHistogram());
+        }
+        for (int slot = 0; slot < CAPACITY; slot++) {
+            int offset = slotOffset(slot);
+            long seq = buffer.getLong(offset + S_SEQ);
+            if (seq == 0) {
+                continue;
+            }
+            long trigger = buffer.getLong(offset + S_TRIGGER);
+            long received = buffer.getLong(offset + S_RECEIVED);
+            long created = buffer.getLong(offset + S_CREATED);
+            long frame = buffer.getLong(offset + S_FIRST_FRAME);
+            long audio = buffer.getLong(offset + S_FIRST_AUDIO);
+            long receiverDone = buffer.getLong(offset + S_RECEIVER_DONE);
+            int inflateUs = buffer.getInt(offset + S_INFLATE_US);
+            boolean warm = (buffer.getInt(offset + S_FLAGS) & FLAG_WARM) != 0;
+            int source = buffer.getInt(offset + S_SOUND_SOURCE);
+            int[] stageMs = new int[ATTEMPT_STAGES.length];
+            for (int stage = 0; stage < stageMs.length; stage++) {
+                stageMs[stage] = buffer.getInt(offset + S_SOUND_STAGE_MS + 4 * stage);
+            }
+            if (buffer.getLong(offset + S_SEQ) != seq) {
+                // Overwritten while being read
+                continue;
+            }
+
+            histograms.get("delivery").record(received - trigger);
+            if (receiverDone != 0) {
+                histograms.get("receiver").record(receiverDone - received);
+            }
+            if (created != 0) {
+                histograms.get("launch").record(created - received);
+                if (frame != 0) {
+                    histograms.get("firstFrame").record(frame - created);
+                }
+            }
+            if (audio != 0) {
+                // Playback starts in RingingService, independently of the activity
+                histograms.get("firstAudio").record(audio - received);
+                if (source >= 0 && source < SOURCE_STAGES.length) {
+                    histograms.get(SOURCE_STAGES[source]).record(audio - received);
+                }
+            }
+            for (int stage = 0; stage < stageMs.length; stage++) {
+                if (stageMs[stage] >= 0) {
+                    histograms.get(ATTEMPT_STAGES[stage]).record(stageMs[stage]);
+                }
+            }
+            if (frame != 0) {
+                histograms.get("triggerToFrame").record(frame - trigger);
+            }
+            if (inflateUs >= 0) {
+                histograms.get("inflateUs").record(inflateUs);
+            }
+            if (audio != 0) {
+                histograms.get("triggerToAudio").record(audio - trigger);
+                histograms.get(warm ? "warmTriggerToAudio" : "coldTriggerToAudio").record(audio - trigger);
+            }
+        }
+        return histograms;
+    }
+
+    /**
+     * Human-readable summary for dumpsys
+     */
+    void dump(PrintWriter writer) {
+        writer.println("Trigger latency (ms; inflateUs in us), last " + CAPACITY + " alarms:");
+        for (Map.Entry<String, LatencyHistogram> entry : getHistograms().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            writer.println(String.format(Locale.US,
+                "  %-22s n=%-4d min=%-6d p50=%-6d p90=%-6d p99=%-6d max=%-6d mean=%.1f",
+                entry.getKey(), histogram.getCount(), histogram.getMin(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getMax(), histogram.getMean()));
+        }
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+}
@@ -56,6 +56,7 @@ export default function RootLayout() {
         const data = response.notification.request.content.data;
         const alarmId = data?.alarmId as string;
         const label = data?.label as string;
+        const snoozeCount = data?.snoozeCount as number | undefined;
 
         // Navigate to alarm ring screen
         router.push({
@@ -63,6 +64,7 @@ export default function RootLayout() {
           params: {
             id: alarmId || '',
             label: label || 'Alarm',
+            snoozeCount: String(snoozeCount ?? 0),
           },
         });
       }
@@ -76,6 +78,7 @@ export default function RootLayout() {
       const data = notification.request.content.data;
       const alarmId = data?.alarmId as string;
       const label = data?.label as string;
+      const snoozeCount = data?.snoozeCount as number | undefined;
 
       // Navigate to alarm ring screen immediately (app is in foreground)
       router.push({
@@ -83,6 +86,7 @@ export default function RootLayout() {
         params: {
           id: alarmId || '',
           label: label || 'Alarm',
+          snoozeCount: String(snoozeCount ?? 0),
         },
       });
     });
@@ -95,6 +99,7 @@ export default function RootLayout() {
       const data = response.notification.request.content.data;
       const alarmId = data?.alarmId as string;
       const label = data?.label as string;
+      const snoozeCount = data?.snoozeCount as number | undefined;
 
       // Navigate to alarm ring screen
       router.push({
@@ -102,6 +107,7 @@ export default function RootLayout() {
         params: {
           id: alarmId || '',
           label: label || 'Alarm',
+          snoozeCount: String(snoozeCount ?? 0),
         },
       });
     });
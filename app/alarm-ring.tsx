@@ -7,6 +7,7 @@ import { Colors } from '../constants/theme';
 import { alarmStorage } from '../services/alarmStorage';
 import { audioService } from '../services/audioService';
 import { notificationService } from '../services/notificationService';
+import { Alarm, DEFAULT_SNOOZE_MINUTES } from '../types/alarm';
 
 /**
  * Full-screen alarm ringing screen
@@ -21,14 +22,23 @@ export default function AlarmRingScreen() {
   const [currentTime, setCurrentTime] = useState(new Date());
   const [alarmLabel, setAlarmLabel] = useState<string>('Alarm');
   const [alarmId, setAlarmId] = useState<string>('');
+  const [alarm, setAlarm] = useState<Alarm | null>(null);
+  const [snoozeCount, setSnoozeCount] = useState(0);
 
   useEffect(() => {
     // Parse params
     const label = Array.isArray(params.label) ? params.label[0] : params.label;
     const id = Array.isArray(params.id) ? params.id[0] : params.id;
+    const count = Array.isArray(params.snoozeCount) ? params.snoozeCount[0] : params.snoozeCount;
     
     setAlarmLabel(label || 'Alarm');
     setAlarmId(id || '');
+    setSnoozeCount(Number(count) || 0);
+
+    // Load snooze settings for this alarm
+    if (id) {
+      alarmStorage.getAlarmById(id).then(setAlarm);
+    }
 
     // Start playing alarm sound
     audioService.playAlarmSound();
@@ -67,22 +77,30 @@ export default function AlarmRingScreen() {
     router.back();
   };
 
+  const snoozeMinutes = alarm?.snoozeMinutes || DEFAULT_SNOOZE_MINUTES;
+  // 0 or unset means unlimited
+  const maxSnoozes = alarm?.maxSnoozes || 0;
+  const canSnooze = maxSnoozes === 0 || snoozeCount < maxSnoozes;
+
   /**
-   * Snooze alarm - stop sound, reschedule for 5 minutes, go back
+   * Snooze alarm - stop sound, reschedule after the alarm's snooze length, go back
    */
   const handleSnooze = async () => {
     await audioService.stopAlarmSound();
     
     // Schedule snooze notification
-    const snoozeTime = new Date(Date.now() + 5 * 60 * 1000); // 5 minutes from now
+    const snoozeTime = new Date(Date.now() + snoozeMinutes * 60 * 1000);
     
     try {
       await notificationService.scheduleSnoozeNotification({
         time: snoozeTime,
         label: alarmLabel,
         alarmId: alarmId,
+        snoozeMinutes: alarm?.snoozeMinutes,
+        maxSnoozes: alarm?.maxSnoozes,
+        snoozeCount: snoozeCount + 1,
       });
-      console.log('Alarm snoozed for 5 minutes');
+      console.log(`Alarm snoozed for ${snoozeMinutes} minutes`);
     } catch (error) {
       console.error('Error scheduling snooze:', error);
     }
@@ -142,15 +160,19 @@ export default function AlarmRingScreen() {
 
       {/* Action buttons */}
       <View style={styles.actions}>
-        <TouchableOpacity 
-          style={[styles.button, styles.snoozeButton]}
-          onPress={handleSnooze}
-          activeOpacity={0.8}
-        >
-          <Text style={styles.buttonIcon}>😴</Text>
-          <Text style={styles.buttonText}>Snooze</Text>
-          <Text style={styles.buttonSubtext}>5 minutes</Text>
-        </TouchableOpacity>
+        {canSnooze && (
+          <TouchableOpacity 
+            style={[styles.button, styles.snoozeButton]}
+            onPress={handleSnooze}
+            activeOpacity={0.8}
+          >
+            <Text style={styles.buttonIcon}>😴</Text>
+            <Text style={styles.buttonText}>Snooze</Text>
+            <Text style={styles.buttonSubtext}>
+              {snoozeMinutes} {snoozeMinutes === 1 ? 'minute' : 'minutes'}
+            </Text>
+          </TouchableOpacity>
+        )}
 
         <TouchableOpacity 
           style={[styles.button, styles.dismissButton]}
@@ -15,7 +15,15 @@ import {
 import { RepeatDaysSelector } from '../components/RepeatDaysSelector';
 import { BorderRadius, Colors, FontSizes, Spacing } from '../constants/theme';
 import { useAlarms } from '../hooks/useAlarms';
-import { Alarm, RepeatDay } from '../types/alarm';
+import {
+  Alarm,
+  DEFAULT_SNOOZE_MINUTES,
+  MAX_SNOOZES_OPTIONS,
+  RepeatDay,
+  SNOOZE_MINUTES_OPTIONS,
+  VIBRATION_PATTERNS,
+  VibrationPatternName,
+} from '../types/alarm';
 
 export default function EditorScreen() {
   const router = useRouter();
@@ -25,6 +33,9 @@ export default function EditorScreen() {
   const [time, setTime] = useState(new Date());
   const [label, setLabel] = useState('');
   const [repeatDays, setRepeatDays] = useState<RepeatDay[]>([]);
+  const [vibrationPattern, setVibrationPattern] = useState<VibrationPatternName>('default');
+  const [snoozeMinutes, setSnoozeMinutes] = useState(DEFAULT_SNOOZE_MINUTES);
+  const [maxSnoozes, setMaxSnoozes] = useState(0);
   const [showTimePicker, setShowTimePicker] = useState(false);
 
   const isEditing = !!params.alarmId;
@@ -35,6 +46,9 @@ export default function EditorScreen() {
       setTime(new Date(existingAlarm.time));
       setLabel(existingAlarm.label);
       setRepeatDays(existingAlarm.repeatDays);
+      setVibrationPattern(existingAlarm.vibrationPattern || 'default');
+      setSnoozeMinutes(existingAlarm.snoozeMinutes || DEFAULT_SNOOZE_MINUTES);
+      setMaxSnoozes(existingAlarm.maxSnoozes || 0);
     }
   }, [existingAlarm]);
 
@@ -46,6 +60,9 @@ export default function EditorScreen() {
           time,
           label,
           repeatDays,
+          vibrationPattern,
+          snoozeMinutes,
+          maxSnoozes,
         };
         await updateAlarm(updatedAlarm);
       } else {
@@ -55,6 +72,9 @@ export default function EditorScreen() {
           label: label || 'Alarm',
           enabled: true,
           repeatDays,
+          vibrationPattern,
+          snoozeMinutes,
+          maxSnoozes,
         };
         await addAlarm(newAlarm);
       }
@@ -75,6 +95,30 @@ export default function EditorScreen() {
     }
   };
 
+  /**
+   * Row of single-choice chips
+   */
+  const renderOptions = <T,>(
+    options: { value: T; label: string }[],
+    selected: T,
+    onSelect: (value: T) => void
+  ) => (
+    <View style={styles.options}>
+      {options.map(option => (
+        <TouchableOpacity
+          key={option.label}
+          style={[styles.option, selected === option.value && styles.optionSelected]}
+          onPress={() => onSelect(option.value)}
+          activeOpacity={0.7}
+        >
+          <Text style={[styles.optionText, selected === option.value && styles.optionTextSelected]}>
+            {option.label}
+          </Text>
+        </TouchableOpacity>
+      ))}
+    </View>
+  );
+
   const formatTime = (date: Date) => {
     const hours = date.getHours();
     const minutes = date.getMinutes();
@@ -142,6 +186,29 @@ export default function EditorScreen() {
           />
         </View>
 
+        <View style={styles.section}>
+          <Text style={styles.sectionLabel}>Vibration</Text>
+          {renderOptions(VIBRATION_PATTERNS, vibrationPattern, setVibrationPattern)}
+        </View>
+
+        <View style={styles.section}>
+          <Text style={styles.sectionLabel}>Snooze length</Text>
+          {renderOptions(
+            SNOOZE_MINUTES_OPTIONS.map(minutes => ({ value: minutes, label: `${minutes} min` })),
+            snoozeMinutes,
+            setSnoozeMinutes
+          )}
+        </View>
+
+        <View style={styles.section}>
+          <Text style={styles.sectionLabel}>Snoozes allowed</Text>
+          {renderOptions(
+            MAX_SNOOZES_OPTIONS.map(count => ({ value: count, label: count === 0 ? 'Unlimited' : `${count}` })),
+            maxSnoozes,
+            setMaxSnoozes
+          )}
+        </View>
+
         {repeatDays.length === 0 && (
           <View style={styles.infoBox}>
             <Text style={styles.infoText}>
@@ -219,6 +286,30 @@ const styles = StyleSheet.create({
     borderWidth: 1,
     borderColor: Colors.dark.border,
   },
+  options: {
+    flexDirection: 'row',
+    flexWrap: 'wrap',
+    gap: Spacing.sm,
+  },
+  option: {
+    backgroundColor: Colors.dark.surface,
+    borderRadius: BorderRadius.md,
+    paddingVertical: Spacing.sm,
+    paddingHorizontal: Spacing.md,
+    borderWidth: 1,
+    borderColor: Colors.dark.border,
+  },
+  optionSelected: {
+    backgroundColor: Colors.dark.primary,
+    borderColor: Colors.dark.primary,
+  },
+  optionText: {
+    fontSize: FontSizes.sm,
+    color: Colors.dark.text,
+  },
+  optionTextSelected: {
+    fontWeight: '600',
+  },
   infoBox: {
     backgroundColor: Colors.dark.surfaceHighlight,
     padding: Spacing.md,
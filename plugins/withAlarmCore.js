@@ -0,0 +1,31 @@
+const { withAppBuildGradle, withSettingsGradle } = require('expo/config-plugins');
+
+/**
+ * Adds the framework-free android/alarm-core module to the generated Gradle build
+ * The module also builds on its own (gradle -p android/alarm-core test jmh),
+ * so tests and benchmarks run on a plain JVM without the Android SDK
+ */
+const SETTINGS = `include ':alarm-core'
+project(':alarm-core').projectDir = new File(rootDir, 'alarm-core')`;
+
+const DEPENDENCY = `    implementation project(':alarm-core')`;
+
+module.exports = function withAlarmCore(config) {
+  config = withSettingsGradle(config, (config) => {
+    if (!config.modResults.contents.includes("':alarm-core'")) {
+      config.modResults.contents += `\n${SETTINGS}\n`;
+    }
+    return config;
+  });
+
+  return withAppBuildGradle(config, (config) => {
+    const contents = config.modResults.contents;
+    if (!contents.includes("project(':alarm-core')")) {
+      config.modResults.contents = contents.replace(
+        /^dependencies\s*\{/m,
+        (match) => `${match}\n${DEPENDENCY}`
+      );
+    }
+    return config;
+  });
+};
@@ -1,15 +1,21 @@
 import { NativeEventEmitter, NativeModules, Platform } from 'react-native';
+import { DEFAULT_SNOOZE_MINUTES } from '../types/alarm';
 import { alarmStorage } from './alarmStorage';
 import { notificationService } from './notificationService';
 
 /**
  * Service to handle native alarm events (dismiss/snooze)
- * These events come from the native AlarmActivity when user interacts with the alarm
+ * These events come from the native AlarmActivity when user interacts with the alarm.
+ * Snoozes are already scheduled natively by the time they arrive here.
+ * ALARM_REPLACED means another alarm started ringing over this one; its ring is over
  */
 
 interface AlarmEvent {
-  eventType: 'ALARM_DISMISSED' | 'ALARM_SNOOZED';
+  eventType: 'ALARM_DISMISSED' | 'ALARM_SNOOZED' | 'ALARM_REPLACED';
   alarmId: string;
+  // Set on ALARM_SNOOZED when native code scheduled the snooze
+  snoozeUntil?: number;
+  snoozeCount?: number;
 }
 
 class AlarmEventService {
@@ -54,9 +60,13 @@ class AlarmEventService {
       case 'ALARM_DISMISSED':
         await this.handleDismiss(alarmId);
         break;
+
+      case 'ALARM_REPLACED':
+        await this.handleReplaced(alarmId);
+        break;
       
       case 'ALARM_SNOOZED':
-        await this.handleSnooze(alarmId);
+        await this.handleSnooze(alarmId, event.snoozeUntil, event.snoozeCount);
         break;
       
       default:
@@ -88,7 +98,35 @@ class AlarmEventService {
     }
   }
 
-  private async handleSnooze(alarmId: string) {
+  /**
+   * Another alarm started ringing over this one before the user answered it
+   */
+  private async handleReplaced(alarmId: string) {
+    try {
+      const alarm = await alarmStorage.getAlarmById(alarmId);
+
+      if (alarm) {
+        if (alarm.repeatDays.length === 0) {
+          // Nobody dismissed it, so leave it enabled rather than marking it done
+          console.warn('One-time alarm was cut off by another alarm:', alarmId);
+        } else {
+          console.log('Rescheduling repeating alarm cut off by another alarm:', alarmId);
+          await notificationService.scheduleAlarmNotification(alarm);
+        }
+      }
+    } catch (error) {
+      console.error('Error handling replaced alarm:', error);
+    }
+  }
+
+  private async handleSnooze(alarmId: string, snoozeUntil?: number, snoozeCount?: number) {
+    if (snoozeUntil !== undefined) {
+      // Native code has already scheduled the snooze; nothing to do but note it
+      console.log('Alarm', alarmId, 'snoozed until', new Date(snoozeUntil).toString(), `(#${snoozeCount})`);
+      return;
+    }
+
+    // Native code could not store the snooze; schedule it from here
     console.log('Handling snooze for alarm:', alarmId);
     
     try {
@@ -96,16 +134,19 @@ class AlarmEventService {
       const alarm = await alarmStorage.getAlarmById(alarmId);
       
       if (alarm) {
-        // Schedule snooze for 5 minutes from now
-        const snoozeTime = new Date(Date.now() + 5 * 60 * 1000);
+        const minutes = alarm.snoozeMinutes || DEFAULT_SNOOZE_MINUTES;
+        const snoozeTime = new Date(Date.now() + minutes * 60 * 1000);
         
         await notificationService.scheduleSnoozeNotification({
           time: snoozeTime,
           label: alarm.label || 'Alarm',
           alarmId: alarm.id,
+          snoozeMinutes: alarm.snoozeMinutes,
+          maxSnoozes: alarm.maxSnoozes,
+          snoozeCount,
         });
         
-        console.log('Snoozed alarm for 5 minutes:', alarmId);
+        console.log(`Snoozed alarm for ${minutes} minutes:`, alarmId);
       }
     } catch (error) {
       console.error('Error handling snooze:', error);
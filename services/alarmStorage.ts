@@ -1,4 +1,4 @@
-import { Alarm, RepeatDay } from '../types/alarm';
+import { Alarm, RepeatDay, VibrationPatternName } from '../types/alarm';
 import { getDatabase } from './database';
 
 /**
@@ -17,6 +17,9 @@ function rowToAlarm(row: any): Alarm {
     enabled: row.enabled === 1,
     repeatDays: JSON.parse(row.repeatDays) as RepeatDay[],
     notificationId: row.notificationId || undefined,
+    vibrationPattern: (row.vibrationPattern as VibrationPatternName) || undefined,
+    snoozeMinutes: row.snoozeMinutes ?? undefined,
+    maxSnoozes: row.maxSnoozes ?? undefined,
   };
 }
 
@@ -31,6 +34,9 @@ function alarmToRow(alarm: Alarm) {
     enabled: alarm.enabled ? 1 : 0,
     repeatDays: JSON.stringify(alarm.repeatDays),
     notificationId: alarm.notificationId || null,
+    vibrationPattern: alarm.vibrationPattern || null,
+    snoozeMinutes: alarm.snoozeMinutes ?? null,
+    maxSnoozes: alarm.maxSnoozes ?? null,
   };
 }
 
@@ -58,9 +64,11 @@ export const alarmStorage = {
       const row = alarmToRow(alarm);
       
       await db.runAsync(
-        `INSERT INTO alarms (id, time, label, enabled, repeatDays, notificationId, createdAt, updatedAt)
-         VALUES (?, ?, ?, ?, ?, ?, datetime('now'), datetime('now'))`,
-        [row.id, row.time, row.label, row.enabled, row.repeatDays, row.notificationId]
+        `INSERT INTO alarms (id, time, label, enabled, repeatDays, notificationId, vibrationPattern,
+           snoozeMinutes, maxSnoozes, createdAt, updatedAt)
+         VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, datetime('now'), datetime('now'))`,
+        [row.id, row.time, row.label, row.enabled, row.repeatDays, row.notificationId, row.vibrationPattern,
+          row.snoozeMinutes, row.maxSnoozes]
       );
       
       return await this.getAlarms();
@@ -80,9 +88,11 @@ export const alarmStorage = {
       
       await db.runAsync(
         `UPDATE alarms 
-         SET time = ?, label = ?, enabled = ?, repeatDays = ?, notificationId = ?, updatedAt = datetime('now')
+         SET time = ?, label = ?, enabled = ?, repeatDays = ?, notificationId = ?, vibrationPattern = ?,
+             snoozeMinutes = ?, maxSnoozes = ?, updatedAt = datetime('now')
          WHERE id = ?`,
-        [row.time, row.label, row.enabled, row.repeatDays, row.notificationId, row.id]
+        [row.time, row.label, row.enabled, row.repeatDays, row.notificationId, row.vibrationPattern,
+          row.snoozeMinutes, row.maxSnoozes, row.id]
       );
       
       return await this.getAlarms();
@@ -35,6 +35,9 @@ async function initializeDatabase(database: SQLite.SQLiteDatabase): Promise<void
       enabled INTEGER NOT NULL DEFAULT 1,
       repeatDays TEXT NOT NULL,
       notificationId TEXT,
+      vibrationPattern TEXT,
+      snoozeMinutes INTEGER,
+      maxSnoozes INTEGER,
       createdAt TEXT NOT NULL DEFAULT (datetime('now')),
       updatedAt TEXT NOT NULL DEFAULT (datetime('now'))
     );
@@ -43,6 +46,32 @@ async function initializeDatabase(database: SQLite.SQLiteDatabase): Promise<void
     CREATE INDEX IF NOT EXISTS idx_alarms_time ON alarms(time);
     CREATE INDEX IF NOT EXISTS idx_alarms_label ON alarms(label);
   `);
+
+  await migrateDatabase(database);
+}
+
+/**
+ * Columns added after the first release, with their SQL types.
+ * CREATE TABLE IF NOT EXISTS leaves older tables alone, so these are added here.
+ */
+const ADDED_COLUMNS: [string, string][] = [
+  ['vibrationPattern', 'TEXT'],
+  ['snoozeMinutes', 'INTEGER'],
+  ['maxSnoozes', 'INTEGER'],
+];
+
+/**
+ * Add any missing columns to an alarms table created by an older version
+ */
+async function migrateDatabase(database: SQLite.SQLiteDatabase): Promise<void> {
+  const columns = await database.getAllAsync<{ name: string }>('PRAGMA table_info(alarms)');
+  const existing = new Set(columns.map(column => column.name));
+
+  for (const [name, type] of ADDED_COLUMNS) {
+    if (!existing.has(name)) {
+      await database.execAsync(`ALTER TABLE alarms ADD COLUMN ${name} ${type};`);
+    }
+  }
 }
 
 /**
@@ -1,10 +1,114 @@
 import { NativeModules, Platform } from 'react-native';
+import { RepeatDay, VibrationPatternName } from '../types/alarm';
 
 /**
  * Native alarm module interface
  * Provides access to Android's AlarmManager for exact alarms
  */
 
+/**
+ * Alarm payload accepted by the native scheduler
+ */
+export interface NativeAlarmData {
+  id: string;
+  label: string;
+  triggerTime: number; // Unix timestamp in milliseconds
+  isRepeating?: boolean;
+  // Wall-clock schedule so native code can re-arm repeating alarms itself
+  hour?: number;
+  minute?: number;
+  repeatDays?: RepeatDay[];
+  // Built-in pattern played while ringing; unknown names use 'default'
+  vibrationPattern?: VibrationPatternName;
+  // Snooze length in minutes (default 5) and snoozes allowed per ring (0 = unlimited);
+  // snoozes are scheduled natively
+  snoozeMinutes?: number;
+  maxSnoozes?: number;
+  // Snoozes taken including this one; set on snoozes scheduled from JS.
+  // Rejected once it exceeds maxSnoozes
+  snoozeCount?: number;
+}
+
+/**
+ * Per-item outcome of a batch scheduling call
+ */
+export interface NativeAlarmResult {
+  id: string | null;
+  success: boolean;
+  error?: string;
+}
+
+/**
+ * Native scheduling counters
+ * submitted - alarm-changing calls received; applied - left after coalescing;
+ * skipped - schedules that matched the armed alarm and were not applied;
+ * binderCalls - AlarmManager set/cancel calls actually issued.
+ * Counts cover the app process since it started; they reset when it restarts
+ */
+export interface NativeSchedulingStats {
+  submitted: number;
+  applied: number;
+  batches: number;
+  skipped: number;
+  binderCalls: number;
+}
+
+/**
+ * Changes applied by a reconcile call, in alarms
+ */
+export interface NativeReconcileResult {
+  added: number;
+  updated: number;
+  removed: number;
+  unchanged: number;
+}
+
+/**
+ * Latency summary of one trigger stage, in milliseconds
+ */
+export interface LatencyStageStats {
+  count: number;
+  min: number;
+  mean: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  max: number;
+}
+
+/**
+ * Trigger latency per stage over the most recent alarms
+ * delivery - scheduled trigger to AlarmReceiver; receiver - AlarmReceiver's own wall time;
+ * launch - receiver to AlarmActivity;
+ * firstFrame - activity creation to first frame; firstAudio - receiver to audio start;
+ * warm/coldTriggerToAudio - triggerToAudio split by whether the alarm process was pre-warmed;
+ * firstAudio<Source> - firstAudio split by the sound source that played (PCM sources are the
+ * rendered sample); sound<Source> - time spent on each source tried, whether or not it played;
+ * inflateUs - microseconds spent building the ringing view (not ms)
+ */
+export interface TriggerLatencyStats {
+  delivery: LatencyStageStats;
+  receiver: LatencyStageStats;
+  launch: LatencyStageStats;
+  firstFrame: LatencyStageStats;
+  firstAudio: LatencyStageStats;
+  triggerToFrame: LatencyStageStats;
+  triggerToAudio: LatencyStageStats;
+  warmTriggerToAudio: LatencyStageStats;
+  coldTriggerToAudio: LatencyStageStats;
+  firstAudioPcm: LatencyStageStats;
+  firstAudioRaw: LatencyStageStats;
+  firstAudioAlarm: LatencyStageStats;
+  firstAudioNotification: LatencyStageStats;
+  firstAudioTone: LatencyStageStats;
+  soundPcm: LatencyStageStats;
+  soundRaw: LatencyStageStats;
+  soundAlarm: LatencyStageStats;
+  soundNotification: LatencyStageStats;
+  soundTone: LatencyStageStats;
+  inflateUs: LatencyStageStats;
+}
+
 interface AlarmModuleInterface {
   /**
    * Check if the app can schedule exact alarms
@@ -22,22 +126,64 @@ interface AlarmModuleInterface {
    * Schedule a native alarm using AlarmManager
    * This will trigger even when the app is killed
    */
-  scheduleAlarm(alarmData: {
-    id: string;
-    label: string;
-    triggerTime: number; // Unix timestamp in milliseconds
-    isRepeating?: boolean;
-  }): Promise<void>;
+  scheduleAlarm(alarmData: NativeAlarmData): Promise<void>;
+
+  /**
+   * Schedule many alarms in a single native call
+   */
+  scheduleAlarms(alarms: NativeAlarmData[]): Promise<NativeAlarmResult[]>;
+
+  /**
+   * Make the native schedule match a complete set of alarms
+   * Only the difference reaches AlarmManager; snoozes are left alone
+   */
+  reconcileAlarms(alarms: NativeAlarmData[]): Promise<NativeReconcileResult>;
+
+  /**
+   * Move a scheduled alarm to a new trigger time
+   * Resolves false if the alarm is not scheduled
+   */
+  rescheduleAlarm(alarmId: string, triggerTime: number): Promise<boolean>;
 
   /**
    * Cancel a scheduled alarm
    */
   cancelAlarm(alarmId: string): Promise<void>;
 
+  /**
+   * Cancel many alarms in a single native call
+   */
+  cancelAlarms(alarmIds: string[]): Promise<NativeAlarmResult[]>;
+
   /**
    * Cancel all scheduled alarms
    */
   cancelAllAlarms(): Promise<void>;
+
+  /**
+   * Read one alarm from the native store (null if not scheduled)
+   */
+  getScheduledAlarm(alarmId: string): Promise<NativeAlarmData | null>;
+
+  /**
+   * Read every alarm in the native store
+   */
+  getScheduledAlarms(): Promise<NativeAlarmData[]>;
+
+  /**
+   * Read native scheduling counters
+   */
+  getSchedulingStats(): Promise<NativeSchedulingStats>;
+
+  /**
+   * Read trigger latency histograms recorded natively
+   */
+  getTriggerLatencyStats(): Promise<TriggerLatencyStats>;
+
+  /**
+   * Pre-warm the alarm process this many seconds before every alarm; 0 disables
+   */
+  setPrewarmLeadSeconds(seconds: number): Promise<void>;
 }
 
 // Get the native module
@@ -90,12 +236,7 @@ export const AlarmModule = {
   /**
    * Schedule a native alarm
    */
-  async scheduleAlarm(alarmData: {
-    id: string;
-    label: string;
-    triggerTime: number;
-    isRepeating?: boolean;
-  }): Promise<void> {
+  async scheduleAlarm(alarmData: NativeAlarmData): Promise<void> {
     if (!this.isAvailable() || !AlarmModuleNative) {
       throw new Error('AlarmModule not available on this platform');
     }
@@ -108,6 +249,57 @@ export const AlarmModule = {
     }
   },
 
+  /**
+   * Schedule many native alarms in one bridge call
+   */
+  async scheduleAlarms(alarms: NativeAlarmData[]): Promise<NativeAlarmResult[]> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      throw new Error('AlarmModule not available on this platform');
+    }
+    try {
+      const results = await AlarmModuleNative.scheduleAlarms(alarms);
+      console.log('Native alarms scheduled:', results.filter(r => r.success).length, 'of', alarms.length);
+      return results;
+    } catch (error) {
+      console.error('Error scheduling native alarms:', error);
+      throw error;
+    }
+  },
+
+  /**
+   * Make the native schedule match a complete set of alarms
+   */
+  async reconcileAlarms(alarms: NativeAlarmData[]): Promise<NativeReconcileResult> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      throw new Error('AlarmModule not available on this platform');
+    }
+    try {
+      const result = await AlarmModuleNative.reconcileAlarms(alarms);
+      console.log('Native alarms reconciled:', result);
+      return result;
+    } catch (error) {
+      console.error('Error reconciling native alarms:', error);
+      throw error;
+    }
+  },
+
+  /**
+   * Move a scheduled alarm to a new trigger time
+   */
+  async rescheduleAlarm(alarmId: string, triggerTime: number): Promise<boolean> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      throw new Error('AlarmModule not available on this platform');
+    }
+    try {
+      const moved = await AlarmModuleNative.rescheduleAlarm(alarmId, triggerTime);
+      console.log('Native alarm rescheduled:', alarmId, moved);
+      return moved;
+    } catch (error) {
+      console.error('Error rescheduling native alarm:', error);
+      throw error;
+    }
+  },
+
   /**
    * Cancel a scheduled alarm
    */
@@ -125,6 +317,24 @@ export const AlarmModule = {
     }
   },
 
+  /**
+   * Cancel many scheduled alarms in one bridge call
+   */
+  async cancelAlarms(alarmIds: string[]): Promise<NativeAlarmResult[]> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      console.warn('AlarmModule not available');
+      return [];
+    }
+    try {
+      const results = await AlarmModuleNative.cancelAlarms(alarmIds);
+      console.log('Native alarms canceled:', results.filter(r => r.success).length, 'of', alarmIds.length);
+      return results;
+    } catch (error) {
+      console.error('Error canceling native alarms:', error);
+      throw error;
+    }
+  },
+
   /**
    * Cancel all scheduled alarms
    */
@@ -141,4 +351,80 @@ export const AlarmModule = {
       throw error;
     }
   },
+
+  /**
+   * Read one alarm from the native store
+   */
+  async getScheduledAlarm(alarmId: string): Promise<NativeAlarmData | null> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      return null;
+    }
+    try {
+      return await AlarmModuleNative.getScheduledAlarm(alarmId);
+    } catch (error) {
+      console.error('Error reading native alarm:', error);
+      return null;
+    }
+  },
+
+  /**
+   * Read every alarm in the native store
+   */
+  async getScheduledAlarms(): Promise<NativeAlarmData[]> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      return [];
+    }
+    try {
+      return await AlarmModuleNative.getScheduledAlarms();
+    } catch (error) {
+      console.error('Error reading native alarms:', error);
+      return [];
+    }
+  },
+
+  /**
+   * Read native scheduling counters (null if unavailable)
+   */
+  async getSchedulingStats(): Promise<NativeSchedulingStats | null> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      return null;
+    }
+    try {
+      return await AlarmModuleNative.getSchedulingStats();
+    } catch (error) {
+      console.error('Error reading native scheduling stats:', error);
+      return null;
+    }
+  },
+
+  /**
+   * Read trigger latency histograms (null if unavailable)
+   */
+  async getTriggerLatencyStats(): Promise<TriggerLatencyStats | null> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      return null;
+    }
+    try {
+      return await AlarmModuleNative.getTriggerLatencyStats();
+    } catch (error) {
+      console.error('Error reading trigger latency stats:', error);
+      return null;
+    }
+  },
+
+  /**
+   * Pre-warm the alarm process ahead of every alarm (0 disables)
+   */
+  async setPrewarmLeadSeconds(seconds: number): Promise<void> {
+    if (!this.isAvailable() || !AlarmModuleNative) {
+      return;
+    }
+    try {
+      await AlarmModuleNative.setPrewarmLeadSeconds(seconds);
+      console.log('Native alarm pre-warm lead set:', seconds);
+    } catch (error) {
+      console.error('Error setting native alarm pre-warm lead:', error);
+      throw error;
+    }
+  },
 };
@@ -1,7 +1,7 @@
 import * as Notifications from 'expo-notifications';
 import { Platform } from 'react-native';
 import { Alarm, RepeatDay } from '../types/alarm';
-import { AlarmModule } from './nativeAlarmModule';
+import { AlarmModule, NativeAlarmData, NativeAlarmResult, NativeReconcileResult } from './nativeAlarmModule';
 
 /**
  * Configure notification behavior
@@ -136,8 +136,12 @@ export const notificationService = {
       // Request exact alarm permission on Android 12+
       await this.requestExactAlarmPermission();
 
-      // Cancel existing notification if any
-      if (alarm.notificationId) {
+      // Cancel existing notification if any. A native alarm with this id is
+      // replaced in place (and left alone if unchanged), so cancelling it first
+      // would only cost extra AlarmManager calls
+      const nativeId = `native-${alarm.id}`;
+      const replacedNatively = AlarmModule.isAvailable() && alarm.notificationId === nativeId;
+      if (alarm.notificationId && !replacedNatively) {
         await this.cancelNotification(alarm.notificationId);
       }
 
@@ -148,7 +152,7 @@ export const notificationService = {
       if (AlarmModule.isAvailable()) {
         await this.scheduleNativeAlarm(alarm);
         // Return a synthetic ID for tracking
-        return `native-${alarm.id}`;
+        return nativeId;
       }
 
       // Fallback to expo-notifications (for iOS or if native module fails)
@@ -219,6 +223,65 @@ export const notificationService = {
       throw new Error('Native alarm module not available');
     }
 
+    const alarmData = this.toNativeAlarm(alarm);
+    await AlarmModule.scheduleAlarm(alarmData);
+
+    console.log('Native alarm scheduled:', alarm.id, 'for', new Date(alarmData.triggerTime).toString());
+  },
+
+  /**
+   * Schedule many alarms at once (e.g. on restore)
+   * Permissions are checked once and all alarms cross the bridge in one call
+   */
+  async scheduleAlarmNotifications(alarms: Alarm[]): Promise<NativeAlarmResult[]> {
+    if (!AlarmModule.isAvailable()) {
+      // No batch path off Android - fall back to one-by-one scheduling
+      const results: NativeAlarmResult[] = [];
+      for (const alarm of alarms) {
+        const notificationId = await this.scheduleAlarmNotification(alarm);
+        results.push({ id: alarm.id, success: notificationId !== null });
+      }
+      return results;
+    }
+
+    try {
+      const hasPermission = await this.requestPermissions();
+      if (!hasPermission) {
+        console.warn('Notification permission denied');
+        return alarms.map(alarm => ({ id: alarm.id, success: false, error: 'Notification permission denied' }));
+      }
+
+      await this.requestExactAlarmPermission();
+
+      return await AlarmModule.scheduleAlarms(alarms.map(alarm => this.toNativeAlarm(alarm)));
+    } catch (error) {
+      console.error('Error scheduling notifications:', error);
+      return alarms.map(alarm => ({ id: alarm.id, success: false, error: String(error) }));
+    }
+  },
+
+  /**
+   * Make native alarms match the enabled alarms in one call
+   * Unchanged alarms are skipped and disabled or deleted ones removed natively
+   */
+  async reconcileAlarms(alarms: Alarm[]): Promise<NativeReconcileResult | null> {
+    if (!AlarmModule.isAvailable()) {
+      return null;
+    }
+
+    try {
+      const enabled = alarms.filter(alarm => alarm.enabled);
+      return await AlarmModule.reconcileAlarms(enabled.map(alarm => this.toNativeAlarm(alarm)));
+    } catch (error) {
+      console.error('Error reconciling alarms:', error);
+      return null;
+    }
+  },
+
+  /**
+   * Build the native scheduler payload for an alarm
+   */
+  toNativeAlarm(alarm: Alarm): NativeAlarmData {
     const isRepeating = alarm.repeatDays.length > 0;
     let triggerDate: Date;
 
@@ -235,14 +298,18 @@ export const notificationService = {
       }
     }
 
-    await AlarmModule.scheduleAlarm({
+    return {
       id: alarm.id,
       label: alarm.label || 'Alarm',
       triggerTime: triggerDate.getTime(),
       isRepeating,
-    });
-
-    console.log('Native alarm scheduled:', alarm.id, 'for', triggerDate.toString());
+      hour: alarm.time.getHours(),
+      minute: alarm.time.getMinutes(),
+      repeatDays: alarm.repeatDays,
+      vibrationPattern: alarm.vibrationPattern,
+      snoozeMinutes: alarm.snoozeMinutes,
+      maxSnoozes: alarm.maxSnoozes,
+    };
   },
 
   /**
@@ -303,7 +370,19 @@ export const notificationService = {
     time: Date;
     label: string;
     alarmId: string;
+    // Source alarm's snooze settings, so the snoozed ring offers the same choices
+    snoozeMinutes?: number;
+    maxSnoozes?: number;
+    // Snoozes taken so far, including this one
+    snoozeCount?: number;
   }): Promise<string | null> {
+    const snoozeCount = params.snoozeCount ?? 1;
+    if (params.maxSnoozes && snoozeCount > params.maxSnoozes) {
+      // Same limit the native scheduler enforces
+      console.warn('Snooze limit reached for alarm:', params.alarmId);
+      return null;
+    }
+
     try {
       // Use native alarm for snooze on Android
       if (AlarmModule.isAvailable()) {
@@ -312,6 +391,9 @@ export const notificationService = {
           label: params.label || 'Snooze Alarm',
           triggerTime: params.time.getTime(),
           isRepeating: false,
+          snoozeMinutes: params.snoozeMinutes,
+          maxSnoozes: params.maxSnoozes,
+          snoozeCount,
         });
         return `native-snooze-${params.alarmId}`;
       }
@@ -323,7 +405,7 @@ export const notificationService = {
           body: params.label || 'Time to wake up!',
           sound: 'alarm',
           priority: Notifications.AndroidNotificationPriority.MAX,
-          data: { alarmId: params.alarmId, label: params.label, isSnooze: true },
+          data: { alarmId: params.alarmId, label: params.label, isSnooze: true, snoozeCount },
           categoryIdentifier: 'alarm',
           autoDismiss: false,
           sticky: true,
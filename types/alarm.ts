@@ -5,8 +5,27 @@ export interface Alarm {
   enabled: boolean;
   repeatDays: RepeatDay[];
   notificationId?: string;
+  vibrationPattern?: VibrationPatternName;
+  snoozeMinutes?: number; // Defaults to DEFAULT_SNOOZE_MINUTES
+  maxSnoozes?: number; // 0 or unset = unlimited
 }
 
+export type VibrationPatternName = 'default' | 'escalating' | 'heartbeat' | 'snooze' | 'none';
+
+// Patterns offered in the editor; 'snooze' is the short confirmation buzz, not an alarm pattern
+export const VIBRATION_PATTERNS: { value: VibrationPatternName; label: string }[] = [
+  { value: 'default', label: 'Default' },
+  { value: 'escalating', label: 'Escalating' },
+  { value: 'heartbeat', label: 'Heartbeat' },
+  { value: 'none', label: 'Off' },
+];
+
+export const DEFAULT_SNOOZE_MINUTES = 5;
+
+// Choices offered in the editor
+export const SNOOZE_MINUTES_OPTIONS = [5, 10, 15, 20, 30];
+export const MAX_SNOOZES_OPTIONS = [0, 1, 2, 3, 5];
+
 export type RepeatDay = 'Mon' | 'Tue' | 'Wed' | 'Thu' | 'Fri' | 'Sat' | 'Sun';
 
 export const DAYS: RepeatDay[] = ['Mon', 'Tue', 'Wed', 'Thu', 'Fri', 'Sat', 'Sun'];